@@ -0,0 +1,111 @@
+package com.khetanshu.corelib;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD implementation of the {@link DistanceKernel} with the JDK Vector API (incubator module, i.e. compiled and run
+ * with "--add-modules jdk.incubator.vector"), in 2 ways depending on the # of attributes d and of lanes L (doubles per
+ * register of the preferred width of the CPU e.g. 4 with AVX2):
+ * - d >= L : the attributes of a pair are processed a full vector at a time with a fused multiply-add, and the
+ *   remaining tail one by one
+ * - d < L (e.g. 2-D points) : one to one is left to the scalar loop, whereas one to many and many to many go L rows at
+ *   a time, each lane holding one row (gathered attribute by attribute, the rows being d apart); the lanes add up the
+ *   square differences in the order of the attributes with no fused multiply-add, hence exactly as the scalar loop, so
+ *   a distance is the same whichever method calculates it
+ *
+ * Never referenced directly, it's loaded by {@link DistanceKernels} only if the module is present. It's kept out of
+ * "src", in its own source root, so that only this class needs the module to be compiled (see README.md).
+ */
+public class VectorDistanceKernel implements DistanceKernel {
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+	private final ScalarDistanceKernel scalarKernel = new ScalarDistanceKernel();
+	private volatile int[] rowIndexMap = new int[0];	/**<lane i to the row i i.e. {0, d, 2d ..}, of the last d asked for*/
+
+	/** @return # of doubles per SIMD register*/
+	public static int getLanes() {
+		return SPECIES.length();
+	}
+
+	@Override
+	public double squareDistance(double[] a, int aOffset, double[] b, int bOffset, int dimensions) {
+		if(dimensions<SPECIES.length()) {
+			return scalarKernel.squareDistance(a, aOffset, b, bOffset, dimensions);
+		}
+		DoubleVector sums = DoubleVector.zero(SPECIES);
+		int loopBound = SPECIES.loopBound(dimensions);
+		int dimensionId = 0;
+		for (; dimensionId < loopBound; dimensionId+=SPECIES.length()) {
+			DoubleVector difference = DoubleVector.fromArray(SPECIES, a, aOffset+dimensionId)
+					.sub(DoubleVector.fromArray(SPECIES, b, bOffset+dimensionId));
+			sums = difference.fma(difference, sums);
+		}
+		double squareDistance = sums.reduceLanes(VectorOperators.ADD);
+		/**Tail*/
+		for (; dimensionId < dimensions; dimensionId++) {
+			double difference = a[aOffset+dimensionId]-b[bOffset+dimensionId];
+			squareDistance+=difference*difference;
+		}
+		return squareDistance;
+	}
+
+	@Override
+	public void squareDistances(double[] a, int aOffset, double[] rows, int fromRow, int toRow, int dimensions, double[] out, int outOffset) {
+		if(dimensions>=SPECIES.length()) {
+			DistanceKernel.super.squareDistances(a, aOffset, rows, fromRow, toRow, dimensions, out, outOffset);
+			return;
+		}
+		squareDistancesAcrossRows(a, aOffset, rows, fromRow, toRow, dimensions, out, outOffset, getRowIndexMap(dimensions));
+	}
+
+	@Override
+	public void squareDistances(double[] rowsA, int fromA, int toA, double[] rowsB, int fromB, int toB, int dimensions, double[] out) {
+		if(dimensions>=SPECIES.length()) {
+			DistanceKernel.super.squareDistances(rowsA, fromA, toA, rowsB, fromB, toB, dimensions, out);
+			return;
+		}
+		int[] indexMap = getRowIndexMap(dimensions);
+		for (int rowA = fromA; rowA < toA; rowA++) {
+			squareDistancesAcrossRows(rowsA, rowA*dimensions, rowsB, fromB, toB, dimensions, out, (rowA-fromA)*(toB-fromB), indexMap);
+		}
+	}
+
+	/** One to many for d < L, L rows per vector (the remaining rows one by one)*/
+	private void squareDistancesAcrossRows(double[] a, int aOffset, double[] rows, int fromRow, int toRow, int dimensions,
+			double[] out, int outOffset, int[] indexMap) {
+		int lanes = SPECIES.length();
+		int row = fromRow;
+		for (; row+lanes <= toRow; row+=lanes) {
+			DoubleVector sums = DoubleVector.zero(SPECIES);
+			for (int dimensionId = 0; dimensionId < dimensions; dimensionId++) {
+				DoubleVector difference = DoubleVector.fromArray(SPECIES, rows, row*dimensions+dimensionId, indexMap, 0)
+						.sub(a[aOffset+dimensionId]);
+				sums = sums.add(difference.mul(difference));
+			}
+			sums.intoArray(out, outOffset+row-fromRow);
+		}
+		/**Tail*/
+		for (; row < toRow; row++) {
+			out[outOffset+row-fromRow]=scalarKernel.squareDistance(a, aOffset, rows, row*dimensions, dimensions);
+		}
+	}
+
+	/** @return {0, d, 2d .. (L-1)d}, cached for the last d (the arrays are never modified once published)*/
+	private int[] getRowIndexMap(int dimensions) {
+		int[] indexMap = rowIndexMap;
+		if(indexMap.length==0 || indexMap[1]!=dimensions) {
+			indexMap = new int[SPECIES.length()];
+			for (int lane = 0; lane < indexMap.length; lane++) {
+				indexMap[lane]=lane*dimensions;
+			}
+			rowIndexMap=indexMap;
+		}
+		return indexMap;
+	}
+
+	@Override
+	public String getName() {
+		return "vector("+SPECIES.length()+" lanes)";
+	}
+}
@@ -1,24 +1,474 @@
 package com.khetanshu.corelib;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Scanner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
+/**
+ * Streaming parser of numeric csv files which writes the values straight into primitive storage:
+ * - a row-major double[] for the attributes (every column except the label column)
+ * - an int[] for the label column (if any)
+ *
+ * The file is memory mapped and split into newline aligned chunks which are parsed in parallel in two passes
+ * 1. count the rows of each chunk (a byte scan) so that each chunk knows the row where it starts
+ * 2. parse each chunk directly into its rows of the arrays
+ * i.e. no String/String[]/Double is created per line or per value (except the rare values which can't be
+ * converted exactly by the fast path, see parseDouble).
+ *
+ * Files too large to be held in memory can be streamed instead (see streamCSV) i.e. parsed one chunk after the other
+ * into arrays of the chunk's rows only, which are handed to a consumer.
+ *
+ * A UTF-8 BOM at the beginning of the file is skipped, and the first line is treated as a header iff any of
+ * its fields isn't a number. Blank lines are ignored.
+ *
+ * ASYMPTOTIC COMPLEXITY(Worst case):
+ * O(b/p) where b : # of bytes of the file, p : parallelism
+ */
 public class CSVReader {
-	public static List<String[]> readCSV(String csvFilePath) {
-		String delimiter =",";
-		List<String[]> data = new ArrayList<>();
-		try(Scanner in = new Scanner(new File(csvFilePath))){
-			while(in.hasNextLine()) {
-				data.add(in.nextLine().split(delimiter));
+	public static final int LAST_COLUMN=-1;
+	public static final int NO_LABEL_COLUMN=-2;
+	public static final int NO_LABEL=-1;
+	private static final char DELIMITER=',';
+	/**Target size of a chunk; small enough to balance the load and to be mapped at once*/
+	private static final long CHUNK_SIZE=16L<<20;
+	private static final double[] POWERS_OF_TEN = new double[23];
+	static {
+		POWERS_OF_TEN[0]=1.0;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i]=POWERS_OF_TEN[i-1]*10;
+		}
+	}
+
+	private int rows;
+	private int dimensions;
+	private int columns;
+	private int labelColumn;
+	private double[] values;
+	private int[] labels;
+	private boolean headerFound;
+
+	private CSVReader() {
+	}
+
+	/**Receives the rows of each chunk of a streamed file, in the order of the file*/
+	public interface ChunkConsumer {
+		/** @param( 	rows		= # of rows of the chunk,
+		 * 			dimensions	= # of columns except the label column,
+		 * 			values		= row-major rows*dimensions values (a new array per chunk),
+		 * 			labels		= label of each row or NO_LABEL)*/
+		void accept(int rows, int dimensions, double[] values, int[] labels) throws IOException;
+	}
+
+	/**
+	 * @param( 	csvFilePath	= file to be parsed,
+	 * 			labelColumn	= index of the column holding the predefined class {LAST_COLUMN, NO_LABEL_COLUMN or 0..c-1},
+	 * 			pool		= pool on which the chunks are parsed)
+	 */
+	public static CSVReader readCSV(String csvFilePath, int labelColumn, ForkJoinPool pool) throws IOException {
+		CSVReader reader = new CSVReader();
+		try(FileChannel channel = FileChannel.open(new File(csvFilePath).toPath(), StandardOpenOption.READ)){
+			long fileSize = channel.size();
+			long dataStart = reader.inspectFirstLine(channel, csvFilePath, labelColumn);
+			final int columns = reader.columns;
+			final int labelIndex = reader.labelColumn;
+
+			/**Split the remaining file in newline aligned chunks*/
+			List<Long> boundaries = new ArrayList<>();
+			boundaries.add(dataStart);
+			long chunkSize = Math.max(1<<16, Math.min(CHUNK_SIZE, (fileSize-dataStart)/(pool.getParallelism()*4L)+1));
+			for (long position = dataStart+chunkSize; position < fileSize; position+=chunkSize) {
+				long boundary = findLineEnd(channel, position);
+				if(boundary>boundaries.get(boundaries.size()-1) && boundary<fileSize) {
+					boundaries.add(boundary);
+				}
+				position=Math.max(position, boundary-chunkSize);
+			}
+			boundaries.add(fileSize);
+			int chunks = boundaries.size()-1;
+			MappedByteBuffer[] buffers = new MappedByteBuffer[chunks];
+			for (int i = 0; i < chunks; i++) {
+				buffers[i]=channel.map(FileChannel.MapMode.READ_ONLY, boundaries.get(i), boundaries.get(i+1)-boundaries.get(i));
+			}
+
+			/**Pass 1: count the rows of each chunk*/
+			List<Future<Integer>> counts = new ArrayList<>();
+			for (int i = 0; i < chunks; i++) {
+				final ByteBuffer buffer = buffers[i];
+				counts.add(pool.submit(() -> countRows(buffer)));
+			}
+			int[] firstRow = new int[chunks+1];
+			for (int i = 0; i < chunks; i++) {
+				firstRow[i+1]=firstRow[i]+get(counts.get(i));
+			}
+			reader.rows=firstRow[chunks];
+			if((long)reader.rows*reader.dimensions>Integer.MAX_VALUE-8) {
+				throw new IOException(csvFilePath+" has "+reader.rows+"x"+reader.dimensions+" values which can't be held in one array");
+			}
+			reader.values=new double[reader.rows*reader.dimensions];
+			reader.labels=new int[reader.rows];
+
+			/**Pass 2: parse each chunk into its own rows*/
+			List<Future<Integer>> parsed = new ArrayList<>();
+			for (int i = 0; i < chunks; i++) {
+				final ByteBuffer buffer = buffers[i];
+				final int row = firstRow[i];
+				final long chunkStart = boundaries.get(i);
+				parsed.add(pool.submit(() -> reader.parseRows(buffer, row, 0, columns, labelIndex, csvFilePath, chunkStart)));
+			}
+			for (Future<Integer> future : parsed) {
+				get(future);
+			}
+		}
+		return reader;
+	}
+
+	/**
+	 * Parses the file one chunk (of ~CHUNK_SIZE bytes) after the other, on the calling thread, i.e. only one chunk's
+	 * rows are held in memory at a time (unless the consumer keeps them)
+	 * @param( 	csvFilePath	= file to be parsed,
+	 * 			labelColumn	= index of the column holding the predefined class {LAST_COLUMN, NO_LABEL_COLUMN or 0..c-1},
+	 * 			consumer	= receives the rows of each chunk)
+	 * @return the reader, holding the # of rows and dimensions of the whole file but no values
+	 */
+	public static CSVReader streamCSV(String csvFilePath, int labelColumn, ChunkConsumer consumer) throws IOException {
+		CSVReader reader = new CSVReader();
+		try(FileChannel channel = FileChannel.open(new File(csvFilePath).toPath(), StandardOpenOption.READ)){
+			long fileSize = channel.size();
+			long chunkStart = reader.inspectFirstLine(channel, csvFilePath, labelColumn);
+			while(chunkStart<fileSize) {
+				long chunkEnd = findLineEnd(channel, Math.min(fileSize, chunkStart+CHUNK_SIZE));
+				ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart, chunkEnd-chunkStart);
+				int chunkRows = countRows(buffer);
+				if(chunkRows>0) {
+					if((long)chunkRows*reader.dimensions>Integer.MAX_VALUE-8) {
+						throw new IOException(csvFilePath+" has lines too long to be streamed");
+					}
+					reader.values=new double[chunkRows*reader.dimensions];
+					reader.labels=new int[chunkRows];
+					try {
+						reader.parseRows(buffer, 0, reader.rows, reader.columns, reader.labelColumn, csvFilePath, chunkStart);
+					}catch(UncheckedIOException e) {
+						throw e.getCause();
+					}
+					reader.rows+=chunkRows;
+					consumer.accept(chunkRows, reader.dimensions, reader.values, reader.labels);
+				}
+				chunkStart=chunkEnd;
+			}
+		}
+		reader.values=null;
+		reader.labels=null;
+		return reader;
+	}
+
+	/** Inspects the first line to find the # of columns and whether it is a header
+	 * @return the position of the first data line*/
+	private long inspectFirstLine(FileChannel channel, String csvFilePath, int labelColumn) throws IOException {
+		long dataStart = skipBom(channel);
+		long firstLineEnd = findLineEnd(channel, dataStart);
+		ByteBuffer firstLine = channel.map(FileChannel.MapMode.READ_ONLY, dataStart, firstLineEnd-dataStart);
+		columns = countColumns(firstLine, 0, firstLine.limit());
+		if(columns==0) {
+			throw new IOException(csvFilePath+" is empty");
+		}
+		headerFound = !isNumericLine(firstLine, 0, firstLine.limit());
+		if(headerFound) {
+			dataStart=firstLineEnd;
+		}
+		if(labelColumn<NO_LABEL_COLUMN || labelColumn>=columns) {
+			throw new IOException(csvFilePath+" has "+columns+" columns, hence no label column "+labelColumn);
+		}
+		this.labelColumn = labelColumn==LAST_COLUMN?columns-1:labelColumn;
+		dimensions = this.labelColumn>=0?columns-1:columns;
+		return dataStart;
+	}
+
+	private static int get(Future<Integer> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) e.getCause()).getCause();
 			}
-			if(null!=in) {
-				in.close();
+			throw new IOException(e.getCause());
+		}
+	}
+
+	private static long skipBom(FileChannel channel) throws IOException {
+		ByteBuffer bom = ByteBuffer.allocate(3);
+		channel.read(bom, 0);
+		if(bom.position()==3 && (bom.get(0)&0xFF)==0xEF && (bom.get(1)&0xFF)==0xBB && (bom.get(2)&0xFF)==0xBF) {
+			return 3;
+		}
+		return 0;
+	}
+
+	/**@return the position just after the first '\n' found at or after "position" (or the file size)*/
+	private static long findLineEnd(FileChannel channel, long position) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		while(position<channel.size()) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if(read<=0)
+				break;
+			for (int i = 0; i < read; i++) {
+				if(buffer.get(i)=='\n') {
+					return position+i+1;
+				}
+			}
+			position+=read;
+		}
+		return channel.size();
+	}
+
+	private static int countColumns(ByteBuffer buffer, int start, int end) {
+		if(isBlank(buffer, start, end))
+			return 0;
+		int columns=1;
+		for (int i = start; i < end; i++) {
+			if(buffer.get(i)==DELIMITER)
+				columns++;
+		}
+		return columns;
+	}
+
+	private static boolean isBlank(ByteBuffer buffer, int start, int end) {
+		for (int i = start; i < end; i++) {
+			byte b = buffer.get(i);
+			if(b!=' ' && b!='\t' && b!='\r' && b!='\n')
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean isNumericLine(ByteBuffer buffer, int start, int end) {
+		int fieldStart=start;
+		for (int i = start; i <= end; i++) {
+			if(i==end || buffer.get(i)==DELIMITER) {
+				try {
+					parseDouble(buffer, fieldStart, i);
+				}catch(NumberFormatException e) {
+					return false;
+				}
+				fieldStart=i+1;
 			}
-		}catch(Exception e) {
-			e.printStackTrace();
 		}
-		return data;
+		return true;
+	}
+
+	/**Pass 1 : # of non blank lines of the chunk*/
+	private static int countRows(ByteBuffer buffer) {
+		int rows=0;
+		boolean blank=true;
+		int end = buffer.limit();
+		for (int i = 0; i < end; i++) {
+			byte b = buffer.get(i);
+			if(b=='\n') {
+				if(!blank)
+					rows++;
+				blank=true;
+			}else if(blank && b!=' ' && b!='\t' && b!='\r') {
+				blank=false;
+			}
+		}
+		return blank?rows:rows+1;
+	}
+
+	/**Pass 2 : parse the non blank lines of the chunk into the rows starting at "row", the row 0 of the arrays being the
+	 * row "rowOffset" of the file (for the messages)*/
+	private int parseRows(ByteBuffer buffer, int row, int rowOffset, int columns, int labelColumn, String csvFilePath, long chunkStart) {
+		int end = buffer.limit();
+		int lineStart=0;
+		while(lineStart<end) {
+			int lineEnd=lineStart;
+			while(lineEnd<end && buffer.get(lineEnd)!='\n') {
+				lineEnd++;
+			}
+			if(!isBlank(buffer, lineStart, lineEnd)) {
+				int fieldStart=lineStart;
+				int column=0;
+				int valueIndex=row*dimensions;
+				for (int i = lineStart; i <= lineEnd; i++) {
+					if(i==lineEnd || buffer.get(i)==DELIMITER) {
+						if(column>=columns) {
+							throw malformed(csvFilePath, chunkStart+lineStart, "more than "+columns+" columns");
+						}
+						try {
+							double value = parseDouble(buffer, fieldStart, i);
+							if(column==labelColumn) {
+								if(value!=Math.rint(value) || value<Integer.MIN_VALUE || value>Integer.MAX_VALUE) {
+									throw malformed(csvFilePath, chunkStart+lineStart, "the label "+value+" of the row "
+											+(rowOffset+row+1)+" isn't an integer");
+								}
+								labels[row]=(int)value;
+							}else {
+								values[valueIndex++]=value;
+							}
+						}catch(NumberFormatException e) {
+							throw malformed(csvFilePath, chunkStart+lineStart, e.getMessage());
+						}
+						column++;
+						fieldStart=i+1;
+					}
+				}
+				if(column!=columns) {
+					throw malformed(csvFilePath, chunkStart+lineStart, column+" columns instead of "+columns);
+				}
+				if(labelColumn<0) {
+					labels[row]=NO_LABEL;
+				}
+				row++;
+			}
+			lineStart=lineEnd+1;
+		}
+		return row;
+	}
+
+	private static UncheckedIOException malformed(String csvFilePath, long position, String reason) {
+		return new UncheckedIOException(new IOException(csvFilePath+": malformed line at byte "+position+" : "+reason));
+	}
+
+	/**
+	 * Parses the number held in the bytes [start,end) ignoring the surrounding blanks.
+	 * Fast path (exact, same result as Double.parseDouble): up to 18 significant digits and a decimal exponent
+	 * within +/-22 i.e. one exact multiplication or division of two exactly representable doubles.
+	 * Anything else falls back to Double.parseDouble.
+	 */
+	static double parseDouble(ByteBuffer buffer, int start, int end) {
+		while(start<end && isSpace(buffer.get(start))) {
+			start++;
+		}
+		while(end>start && isSpace(buffer.get(end-1))) {
+			end--;
+		}
+		if(start==end) {
+			throw new NumberFormatException("empty value");
+		}
+		int i=start;
+		boolean negative=false;
+		if(buffer.get(i)=='-' || buffer.get(i)=='+') {
+			negative = buffer.get(i)=='-';
+			i++;
+		}
+		long mantissa=0;
+		int digits=0;
+		int exponent=0;
+		boolean digitFound=false;
+		while(i<end && isDigit(buffer.get(i))) {
+			digitFound=true;
+			if(digits<18) {
+				mantissa=mantissa*10+(buffer.get(i)-'0');
+				if(mantissa!=0)
+					digits++;
+			}else {
+				exponent++;
+				digits++;
+			}
+			i++;
+		}
+		if(i<end && buffer.get(i)=='.') {
+			i++;
+			while(i<end && isDigit(buffer.get(i))) {
+				digitFound=true;
+				if(digits<18) {
+					mantissa=mantissa*10+(buffer.get(i)-'0');
+					if(mantissa!=0)
+						digits++;
+					exponent--;
+				}else {
+					digits++;
+				}
+				i++;
+			}
+		}
+		if(digitFound && i<end && (buffer.get(i)=='e' || buffer.get(i)=='E')) {
+			i++;
+			boolean negativeExponent=false;
+			if(i<end && (buffer.get(i)=='-' || buffer.get(i)=='+')) {
+				negativeExponent = buffer.get(i)=='-';
+				i++;
+			}
+			int explicitExponent=0;
+			boolean exponentDigitFound=false;
+			while(i<end && isDigit(buffer.get(i))) {
+				exponentDigitFound=true;
+				if(explicitExponent<100000)
+					explicitExponent=explicitExponent*10+(buffer.get(i)-'0');
+				i++;
+			}
+			if(!exponentDigitFound) {
+				return parseSlow(buffer, start, end);
+			}
+			exponent+= negativeExponent?-explicitExponent:explicitExponent;
+		}
+		if(!digitFound || i!=end || digits>18 || mantissa>(1L<<53)) {
+			/**e.g. NaN, Infinity, hex or too many digits*/
+			return parseSlow(buffer, start, end);
+		}
+		double value;
+		if(exponent==0) {
+			value=mantissa;
+		}else if(exponent>0 && exponent<POWERS_OF_TEN.length) {
+			value=mantissa*POWERS_OF_TEN[exponent];
+		}else if(exponent<0 && -exponent<POWERS_OF_TEN.length) {
+			value=mantissa/POWERS_OF_TEN[-exponent];
+		}else {
+			return parseSlow(buffer, start, end);
+		}
+		return negative?-value:value;
+	}
+
+	private static double parseSlow(ByteBuffer buffer, int start, int end) {
+		byte[] bytes = new byte[end-start];
+		for (int i = start; i < end; i++) {
+			bytes[i-start]=buffer.get(i);
+		}
+		return Double.parseDouble(new String(bytes, StandardCharsets.US_ASCII));
+	}
+
+	private static boolean isDigit(byte b) {
+		return b>='0' && b<='9';
+	}
+
+	private static boolean isSpace(byte b) {
+		return b==' ' || b=='\t' || b=='\r' || b=='\n' || b=='"';
+	}
+
+	/*Encapsulation Procedures*/
+
+	public int getRows() {
+		return rows;
+	}
+
+	/**@return # of columns except the label column*/
+	public int getDimensions() {
+		return dimensions;
+	}
+
+	/**@return row-major rows*dimensions values (null once streamed)*/
+	public double[] getValues() {
+		return values;
+	}
+
+	/**@return label of each row or NO_LABEL*/
+	public int[] getLabels() {
+		return labels;
+	}
+
+	public boolean isHeaderFound() {
+		return headerFound;
 	}
 }
@@ -1,91 +1,101 @@
 package com.khetanshu.corelib;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
+/**
+ * Union-find over the dense ids {0..n-1}, each one a set of its own to begin with.
+ *
+ * The parent and the size of each set are kept in int arrays (no boxing, no hashing); find is iterative with path
+ * halving (each node visited is pointed to its grandparent) so deep chains can't overflow the stack, and union attaches
+ * the smaller set under the larger one, so the trees stay O(lg(n)) deep and the size of any set is known in O(1).
+ *
+ * DATA STRUCTURE USED:
+ * 1. Array (parent and set size per id)
+ *
+ * ASYMPTOTIC COMPLEXITY(Worst case):
+ * Find, Union : O(α(n)) amortized, Size of a set : O(α(n)) [O(1) for a root], Space : O(n)
+ *
+ * where,
+ * n : # of ids, α : inverse Ackermann function
+ */
 public class DisjointSets {
-	private Map<Integer,Integer> ranks;
-	private Map<Integer,Integer> parents;
-	private Integer totalDisjointSets;
-	
-	public DisjointSets() {
-		ranks= new HashMap<>();
-		parents= new HashMap<>();
-		totalDisjointSets=0;
+	private final int[] parents;
+	private final int[] sizes;		/**<# of ids of the set, valid for the roots only*/
+	private int totalDisjointSets;
+
+	/** @param size = # of ids i.e. the sets {0}, {1} .. {size-1}*/
+	public DisjointSets(int size) {
+		parents = new int[size];
+		sizes = new int[size];
+		for (int id = 0; id < size; id++) {
+			parents[id]=id;
+		}
+		Arrays.fill(sizes, 1);
+		totalDisjointSets=size;
 	}
-	
+
 	public void displayStatus() {
-		System.out.println("Parents: "+parents);
-		System.out.println("Ranks: "+ranks);
+		System.out.println("Parents: "+Arrays.toString(parents));
+		System.out.println("Sizes: "+Arrays.toString(sizes));
 	}
-	
-	public Integer getParent(Integer node) {
-		return parents.get(node);
+
+	public int getParent(int id) {
+		return parents[id];
 	}
-	
+
+	/** @return # of disjoint sets*/
 	public int getSize() {
 		return totalDisjointSets;
 	}
-	
-	public Boolean makeSet(Integer uniqueNodeId) {
-		parents.put(uniqueNodeId, uniqueNodeId);
-		ranks.put(uniqueNodeId, 0);
-		totalDisjointSets++;
-		return true;
+
+	/** @return # of ids in the set of the id*/
+	public int getSetSize(int id) {
+		return sizes[find(id)];
 	}
-	
-	public Integer findByPathCompression(Integer uniqueNodeId) {
-		if(parents.get(uniqueNodeId)!=uniqueNodeId) {
-			Integer newParent = findByPathCompression(parents.get(uniqueNodeId));
-			parents.put(uniqueNodeId, newParent);
-			return newParent;
+
+	/** @return the root (representative) of the set of the id*/
+	public int find(int id) {
+		while(parents[id]!=id) {
+			/**Path halving*/
+			parents[id]=parents[parents[id]];
+			id=parents[id];
 		}
-		return uniqueNodeId;
+		return id;
 	}
-	
+
 	/*
-	 * @param two unique nodes' IDs 
-	 * @return function would return the id of the set that is no more a parent 
-	 * i.e. its has become a child of other node passed as an input
+	 * @param two ids
+	 * @return the root of the merged set i.e. of the larger of the two sets (of B if same size); the root of both if
+	 * they were in the same set already
 	 */
-	public void union(Integer uniqueNodeId_A, Integer uniqueNodeId_B) {
-		Integer root_A=findByPathCompression(uniqueNodeId_A);
-		Integer root_B=findByPathCompression(uniqueNodeId_B);
-		
+	public int union(int id_A, int id_B) {
+		int root_A=find(id_A);
+		int root_B=find(id_B);
+
 		if(root_A==root_B) {
-			return;
+			return root_A;
 		}
 		totalDisjointSets--;
-		/*i.e. both nodes are in different sets hence can be merged*/
-		if(ranks.get(root_A)>ranks.get(root_B)) {
-			/*if the rank of A node is more than B then make A as parent of B*/
-			parents.put(root_B, root_A);
-		}else {
-			/*else make B as parent of A but if the rank of both are same then increase the parents rank by 1*/
-			parents.put(root_A, root_B);
-			if(ranks.get(root_A)==ranks.get(root_B)) {
-				ranks.put(root_B, ranks.get(root_B)+1);
-			}
+		/*i.e. both ids are in different sets hence can be merged, the smaller set goes under the larger one*/
+		if(sizes[root_A]>sizes[root_B]) {
+			parents[root_B]=root_A;
+			sizes[root_A]+=sizes[root_B];
+			return root_A;
 		}
-		
+		parents[root_A]=root_B;
+		sizes[root_B]+=sizes[root_A];
+		return root_B;
 	}
 
-	
+
 	public static void main(String[] args) {
 		/*Testing disjoint sets*/
-		DisjointSets set = new DisjointSets();
-		System.out.println("Make set 1,2,3,4");
-		set.makeSet(1);
-		set.makeSet(2);
-		set.makeSet(3);
-		set.makeSet(4);
+		System.out.println("Make set 0,1,2,3,4,5,6,7");
+		DisjointSets set = new DisjointSets(8);
 		System.out.println("##Size="+set.getSize());
 		set.displayStatus();
-		System.out.println("\nUnion(1, 2)");
-		set.union(1, 2);
-		set.displayStatus();
-		System.out.println("\nUnion(3, 4)");
-		set.union(3, 4);
+		System.out.println("\nUnion(0, 1)");
+		set.union(0, 1);
 		set.displayStatus();
 		System.out.println("\nUnion(2, 3)");
 		set.union(2, 3);
@@ -93,28 +103,22 @@ public class DisjointSets {
 		System.out.println("\nUnion(1, 2)");
 		set.union(1, 2);
 		set.displayStatus();
-		System.out.println("##Size="+set.getSize());
-		System.out.println("\nMake set 5,6,7,8");
-		set.makeSet(5);
-		set.makeSet(6);
-		set.makeSet(7);
-		set.makeSet(8);
-		System.out.println("##Size="+set.getSize());
+		System.out.println("\nUnion(0, 1)");
+		set.union(0, 1);
 		set.displayStatus();
-		System.out.println("\nUnion(5, 6), Union(7, 8)");
-		set.union(5, 6);
-		set.union(7, 8);
+		System.out.println("##Size="+set.getSize()+", size of the set of 3="+set.getSetSize(3));
+		System.out.println("\nUnion(4, 5), Union(6, 7)");
+		set.union(4, 5);
+		set.union(6, 7);
 		set.displayStatus();
 		System.out.println("##Size="+set.getSize());
-		System.out.println("\nUnion(5, 8)");
-		set.union(5,8);
+		System.out.println("\nUnion(4, 7)");
+		set.union(4, 7);
 		set.displayStatus();
-		System.out.println("\nUnion(8, 3)");
-		set.union(8, 3);
+		System.out.println("\nUnion(7, 2)");
+		set.union(7, 2);
 		set.displayStatus();
-		System.out.println("##Size="+set.getSize());
-		
-		
+		System.out.println("##Size="+set.getSize()+", size of the set of 3="+set.getSetSize(3));
 	}
 
 }
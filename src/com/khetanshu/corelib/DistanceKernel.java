@@ -0,0 +1,31 @@
+package com.khetanshu.corelib;
+
+/**
+ * Square euclidean distance kernels over row-major matrices (a vector of d values starts at its "offset", a row "r"
+ * of a matrix at r*d), i.e. one to one, one to many and many to many.
+ *
+ * The implementation is chosen at runtime by {@link DistanceKernels#getInstance()}: the SIMD one (VectorDistanceKernel,
+ * JDK Vector API, built from the separate source root "src-vector") when available, else the scalar one.
+ */
+public interface DistanceKernel {
+	/** @return Σ (a[aOffset+i]-b[bOffset+i])² for i in [0,d)*/
+	double squareDistance(double[] a, int aOffset, double[] b, int bOffset, int dimensions);
+
+	/** One to many: out[outOffset+r-fromRow] = square distance of the vector "a" from the row "r" of "rows",
+	 * for r in [fromRow, toRow)*/
+	default void squareDistances(double[] a, int aOffset, double[] rows, int fromRow, int toRow, int dimensions, double[] out, int outOffset) {
+		for (int row = fromRow; row < toRow; row++) {
+			out[outOffset+row-fromRow]=squareDistance(a, aOffset, rows, row*dimensions, dimensions);
+		}
+	}
+
+	/** Many to many: out[(i-fromA)*(toB-fromB)+(j-fromB)] = square distance of the row "i" of "rowsA" from the row "j"
+	 * of "rowsB", for i in [fromA, toA) and j in [fromB, toB)*/
+	default void squareDistances(double[] rowsA, int fromA, int toA, double[] rowsB, int fromB, int toB, int dimensions, double[] out) {
+		for (int rowA = fromA; rowA < toA; rowA++) {
+			squareDistances(rowsA, rowA*dimensions, rowsB, fromB, toB, dimensions, out, (rowA-fromA)*(toB-fromB));
+		}
+	}
+
+	String getName();
+}
@@ -0,0 +1,42 @@
+package com.khetanshu.corelib;
+
+/**
+ * Runtime choice of the {@link DistanceKernel}: the SIMD kernel iff it's preferred and the JDK Vector API module is
+ * present (i.e. the program is run with "--add-modules jdk.incubator.vector") with at least 2 lanes, else the scalar one.
+ * The SIMD kernel is in the separate source root "src-vector" (see README.md) so that "src" builds without the module;
+ * if it isn't on the class path, the scalar kernel is used.
+ */
+public class DistanceKernels {
+	private static final String VECTOR_KERNEL_CLASS="com.khetanshu.corelib.VectorDistanceKernel";
+	private static boolean preferVector=true;
+	private static DistanceKernel instance;
+
+	public static synchronized DistanceKernel getInstance() {
+		if(instance==null) {
+			instance = preferVector?loadVectorKernel():null;
+			if(instance==null) {
+				instance = new ScalarDistanceKernel();
+			}
+		}
+		return instance;
+	}
+
+	/** @param preferVector = false to always use the scalar kernel (takes effect for the kernels asked for afterwards)*/
+	public static synchronized void setPreferVector(boolean preferVector) {
+		DistanceKernels.preferVector=preferVector;
+		instance=null;
+	}
+
+	/** @return the SIMD kernel, or null if the Vector API isn't available (or too narrow to help)*/
+	private static DistanceKernel loadVectorKernel() {
+		try {
+			Class<?> kernelClass = Class.forName(VECTOR_KERNEL_CLASS);
+			if((int)kernelClass.getMethod("getLanes").invoke(null)<2) {
+				return null;
+			}
+			return (DistanceKernel)kernelClass.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+}
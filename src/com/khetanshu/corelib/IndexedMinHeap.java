@@ -0,0 +1,141 @@
+package com.khetanshu.corelib;
+
+import java.util.Arrays;
+
+/**
+ * Addressable binary min-heap of the dense ids {0..n-1}, each with a double key, i.e. a priority queue whose entries
+ * can be found, re-keyed (decreased or increased) and removed by their id in O(lg(n)), instead of a full iteration
+ * and removal as with java.util.PriorityQueue.
+ *
+ * The heap is an int array of ids, and the position of each id in it is kept in another int array (-1 if absent) so
+ * that an id is found in O(1). Ids of the same key are ordered by the id (the lower one first), so the minimum is
+ * deterministic.
+ *
+ * DATA STRUCTURE USED:
+ * 1. Array (heap of ids, position and key per id)
+ *
+ * ASYMPTOTIC COMPLEXITY(Worst case):
+ * Set (insert or re-key), Remove, Poll : O(lg(n)), Peek, Contains : O(1), Space : O(n)
+ *
+ * where,
+ * n : # of ids
+ */
+public class IndexedMinHeap {
+	private final int[] heap;		/**<ids in the heap order*/
+	private final int[] positions;	/**<position of each id in the heap, -1 if absent*/
+	private final double[] keys;
+	private int size;
+
+	/** @param capacity = # of ids i.e. {0..capacity-1}*/
+	public IndexedMinHeap(int capacity) {
+		heap = new int[capacity];
+		positions = new int[capacity];
+		keys = new double[capacity];
+		Arrays.fill(positions, -1);
+	}
+
+	/** Inserts the id with the key, or re-keys it if already in*/
+	public void set(int id, double key) {
+		if(positions[id]<0) {
+			heap[size]=id;
+			positions[id]=size++;
+			keys[id]=key;
+			siftUp(positions[id]);
+		}else {
+			double oldKey = keys[id];
+			keys[id]=key;
+			if(key<oldKey) {
+				siftUp(positions[id]);
+			}else {
+				siftDown(positions[id]);
+			}
+		}
+	}
+
+	/** Removes the id if it is in*/
+	public void remove(int id) {
+		int position = positions[id];
+		if(position<0) {
+			return;
+		}
+		positions[id]=-1;
+		size--;
+		if(position==size) {
+			return;
+		}
+		/**The last one fills the hole, then goes up or down*/
+		int last = heap[size];
+		heap[position]=last;
+		positions[last]=position;
+		siftUp(position);
+		siftDown(positions[last]);
+	}
+
+	/** @return the id of the minimum key, -1 if empty*/
+	public int peek() {
+		return size>0?heap[0]:-1;
+	}
+
+	/** @return the id of the minimum key, removed from the heap; -1 if empty*/
+	public int poll() {
+		int id = peek();
+		if(id>=0) {
+			remove(id);
+		}
+		return id;
+	}
+
+	public boolean contains(int id) {
+		return positions[id]>=0;
+	}
+
+	public double getKey(int id) {
+		return keys[id];
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size==0;
+	}
+
+	/** @return true if the id "a" goes before the id "b" i.e. lower key, or same key and lower id*/
+	private boolean less(int a, int b) {
+		return keys[a]<keys[b] || (keys[a]==keys[b] && a<b);
+	}
+
+	private void siftUp(int position) {
+		int id = heap[position];
+		while(position>0) {
+			int parent = (position-1)/2;
+			if(!less(id, heap[parent]))
+				break;
+			heap[position]=heap[parent];
+			positions[heap[position]]=position;
+			position=parent;
+		}
+		heap[position]=id;
+		positions[id]=position;
+	}
+
+	private void siftDown(int position) {
+		int id = heap[position];
+		while(true) {
+			int child = 2*position+1;
+			if(child>=size)
+				break;
+			if(child+1<size && less(heap[child+1], heap[child])) {
+				child++;
+			}
+			if(!less(heap[child], id))
+				break;
+			heap[position]=heap[child];
+			positions[heap[position]]=position;
+			position=child;
+		}
+		heap[position]=id;
+		positions[id]=position;
+	}
+}
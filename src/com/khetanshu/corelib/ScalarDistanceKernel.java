@@ -0,0 +1,21 @@
+package com.khetanshu.corelib;
+
+/**
+ * Plain loop implementation of the {@link DistanceKernel} (left to the JIT's auto-vectorization)
+ */
+public class ScalarDistanceKernel implements DistanceKernel {
+	@Override
+	public double squareDistance(double[] a, int aOffset, double[] b, int bOffset, int dimensions) {
+		double squareDistance=0.0;
+		for (int dimensionId = 0; dimensionId < dimensions; dimensionId++) {
+			double difference = a[aOffset+dimensionId]-b[bOffset+dimensionId];
+			squareDistance+=difference*difference;
+		}
+		return squareDistance;
+	}
+
+	@Override
+	public String getName() {
+		return "scalar";
+	}
+}
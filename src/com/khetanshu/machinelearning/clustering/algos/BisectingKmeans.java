@@ -0,0 +1,336 @@
+package com.khetanshu.machinelearning.clustering.algos;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.IntStream;
+
+import com.khetanshu.machinelearning.clustering.main.ClusteringAlgorithms;
+import com.khetanshu.machinelearning.clustering.util.CONSTANTS;
+import com.khetanshu.machinelearning.clustering.vo.Dataset;
+
+/**
+ * Bisecting k-means: starting from one cluster of all the points, the cluster with the highest SSE (sum of the square
+ * distances from its centroid) is split in two by 2-means (k-means++ seeded, Lloyd's iterations over its own points),
+ * until there are k clusters. A point is only compared with the 2 centroids of each split along its path, hence the
+ * cost grows with lg(k) instead of k (for balanced splits). Optionally (BISECTING_REFINE) the k centroids are then
+ * refined by the usual Lloyd's iterations over all the points.
+ *
+ * The clusters are kept as disjoint ranges of one permutation of the points, hence splitting a cluster only reorders
+ * its own range. Besides the highest SSE cluster, the splits of the next highest ones (p clusters in all) are started
+ * ahead (in parallel) so the splits of different clusters run concurrently; a cluster split ahead but never picked is a
+ * wasted 2-means, hence the look-ahead is limited to p (at most p-1 splits wasted in the end, on cores which would be
+ * idle otherwise) rather than every new cluster (about half of the splits wasted for large k). The clusters being large
+ * at the top of the tree, the assignment of a large cluster is itself run in fixed partitions in parallel. Each cluster
+ * has its own random stream (derived from the seed and its creation order), hence the same seed gives the same clusters
+ * whatever the parallelism level.
+ *
+ * DATA STRUCTURE USED:
+ * 1. Array (permutation of the points, side of each point in the split of its cluster)
+ * 2. Sorted Set (Red-Black Tree, clusters by SSE)
+ * 3. Fork-Join Pool
+ *
+ * ASYMPTOTIC COMPLEXITY(Worst case):
+ * O(n * d * i * lg(k) / p) for balanced splits, O(n * d * i * k / p) for the most unbalanced ones
+ *
+ * where,
+ * n : # of point ,  k : number of clusters,  d : number of attributes, i : iterations per split, p : parallelism
+ */
+public class BisectingKmeans extends Kmeans {
+	private final long seed;
+	private final boolean refine;
+	private final int[] order;			/**<permutation of the points, each cluster is a range of it*/
+	private final byte[] sides;			/**<per point, side of the split of its cluster {0,1}*/
+	private volatile boolean splitting;
+	private int splitIterations;
+	private long splitDistanceCalculations;
+	private int nextClusterId;
+
+	public BisectingKmeans(Dataset dataset, int totalClusters, long seed) {
+		this(dataset, totalClusters, seed, ClusteringAlgorithms.BISECTING_REFINE);
+	}
+
+	/** @param refine = run Lloyd's iterations over all the points from the centroids of the splits*/
+	public BisectingKmeans(Dataset dataset, int totalClusters, long seed, boolean refine) {
+		super(dataset, totalClusters, CONSTANTS.BISECTING, seed);
+		this.seed=random.nextLong();
+		this.refine=refine;
+		this.order=new int[dataset.getSize()];
+		this.sides=new byte[dataset.getSize()];
+		for (int pointId = 0; pointId < order.length; pointId++) {
+			order[pointId]=pointId;
+		}
+	}
+
+	/** A cluster i.e. the range [from,to) of the permutation, and its split (null until started)*/
+	private class Cluster implements Comparable<Cluster> {
+		final int id;
+		final int from;
+		final int to;
+		final double[] centroid;
+		final double sse;
+		ForkJoinTask<Split> split;
+
+		Cluster(int from, int to, double[] centroid, double sse) {
+			this.id=nextClusterId++;
+			this.from=from;
+			this.to=to;
+			this.centroid=centroid;
+			this.sse=sse;
+		}
+
+		/**Highest SSE first, ties to the older cluster*/
+		@Override
+		public int compareTo(Cluster other) {
+			int bySse = Double.compare(other.sse, sse);
+			return bySse!=0 ? bySse : Integer.compare(id, other.id);
+		}
+	}
+
+	/** Result of a 2-means i.e. the range is reordered as [from,middle) and [middle,to)*/
+	private static class Split {
+		int middle;
+		double[] centroids;	/**<2*d*/
+		double[] sse;		/**<2*/
+		int iterations;
+		long distanceCalculations;
+	}
+
+	@Override
+	public void fit() {
+		splitting=true;
+		TreeSet<Cluster> clusters = new TreeSet<>();
+		clusters.add(new Cluster(0, dataset.getSize(), mean(0, dataset.getSize()), Double.MAX_VALUE));
+		List<Cluster> leaves = new ArrayList<>();
+		while(!clusters.isEmpty() && leaves.size()+clusters.size()<totalClusters && !isCancelled()) {
+			startSplits(clusters);
+			Cluster cluster = clusters.pollFirst();
+			Split split = cluster.split.join();
+			if(split==null) {
+				/**Can't be split any more (a single point, or all the points are the same)*/
+				leaves.add(cluster);
+				continue;
+			}
+			splitIterations+=split.iterations;
+			splitDistanceCalculations+=split.distanceCalculations;
+			clusters.add(new Cluster(cluster.from, split.middle, copyCentroid(split.centroids, 0), split.sse[0]));
+			clusters.add(new Cluster(split.middle, cluster.to, copyCentroid(split.centroids, 1), split.sse[1]));
+		}
+		/**The splits not needed any more are stopped, and waited for as they reorder their own range*/
+		splitting=false;
+		for (Cluster cluster : clusters) {
+			if(cluster.split!=null) {
+				cluster.split.join();
+			}
+			leaves.add(cluster);
+		}
+		leaves.sort((a, b) -> Integer.compare(a.id, b.id));
+		assignToLeaves(leaves);
+		if(refine && !isCancelled()) {
+			super.fit();
+		}
+	}
+
+	/** Starts the splits, not started yet, of the p highest SSE clusters (the first one being the next to be split)*/
+	private void startSplits(TreeSet<Cluster> clusters) {
+		int lookAhead = pool.getParallelism();
+		for (Cluster cluster : clusters) {
+			if(lookAhead--<=0)
+				break;
+			if(cluster.split==null) {
+				cluster.split = pool.submit(() -> split(cluster));
+			}
+		}
+	}
+
+	/** @return the 2-means of the points of the cluster, null if it can't be split (or the splitting is over)*/
+	private Split split(Cluster cluster) {
+		int size = cluster.to-cluster.from;
+		if(size<2 || cluster.sse<=0) {
+			return null;
+		}
+		Random clusterRandom = new Random(seed+cluster.id*0x9E3779B97F4A7C15L);
+		Split split = new Split();
+		split.centroids = new double[2*dimensions];
+		/**k-means++ with 2 centroids : a random point, then one with probability D² from it*/
+		dataset.copyPoint(order[cluster.from+clusterRandom.nextInt(size)], split.centroids, 0);
+		double total=0;
+		for (int i = cluster.from; i < cluster.to; i++) {
+			total+=dataset.squareDistance(order[i], split.centroids, 0);
+		}
+		if(total<=0) {
+			return null;
+		}
+		double threshold = clusterRandom.nextDouble()*total;
+		int chosen=-1;
+		for (int i = cluster.from; i < cluster.to && threshold>=0; i++) {
+			double squareDistance = dataset.squareDistance(order[i], split.centroids, 0);
+			if(squareDistance>0) {
+				chosen=order[i];
+				threshold-=squareDistance;
+			}
+		}
+		dataset.copyPoint(chosen, split.centroids, dimensions);
+		split.distanceCalculations=2L*size;
+
+		int[] bounds = calculatePartitionBounds(size);
+		SplitPartition[] partitions = new SplitPartition[bounds.length-1];
+		for (int i = 0; i < partitions.length; i++) {
+			partitions[i] = new SplitPartition(cluster.from+bounds[i], cluster.from+bounds[i+1]);
+		}
+		int maxIterations = getMaxIterations();
+		while(true) {
+			if(!splitting) {
+				return null;
+			}
+			split.iterations++;
+			split.distanceCalculations+=2L*size;
+			double[] previousCentroids = split.centroids;
+			if(partitions.length==1) {
+				partitions[0].assign(previousCentroids);
+			}else {
+				pool.submit(() -> IntStream.range(0, partitions.length).parallel().forEach(i -> partitions[i].assign(previousCentroids))).join();
+			}
+			/**Reduced in partition order*/
+			double[] sums = new double[2*dimensions];
+			long[] counts = new long[2];
+			double[] sse = new double[2];
+			boolean changed=false;
+			for (SplitPartition partition : partitions) {
+				for (int i = 0; i < sums.length; i++) {
+					sums[i]+=partition.sums[i];
+				}
+				for (int side = 0; side < 2; side++) {
+					counts[side]+=partition.counts[side];
+					sse[side]+=partition.sse[side];
+				}
+				changed|=partition.changed;
+			}
+			if(counts[0]==0 || counts[1]==0) {
+				return null;
+			}
+			split.centroids = new double[2*dimensions];
+			for (int side = 0; side < 2; side++) {
+				double squareShift=0;
+				for (int dimensionId = 0; dimensionId < dimensions; dimensionId++) {
+					int index = side*dimensions+dimensionId;
+					split.centroids[index]=sums[index]/counts[side];
+					squareShift+=(split.centroids[index]-previousCentroids[index])*(split.centroids[index]-previousCentroids[index]);
+				}
+				/**SSE from the mean = SSE from the previous centroid - count * (square distance between the two)*/
+				sse[side]=Math.max(0, sse[side]-counts[side]*squareShift);
+			}
+			split.sse=sse;
+			/**the sides left by the split of the parent cluster are stale, hence at least 2 iterations*/
+			if((!changed && split.iterations>1) || (maxIterations>0 && split.iterations>=maxIterations)) {
+				break;
+			}
+		}
+		/**Reorder the range as the points of the side 0 then the ones of the side 1*/
+		int left=cluster.from, right=cluster.to-1;
+		while(left<=right) {
+			if(sides[order[left]]==0) {
+				left++;
+			}else {
+				int temp=order[left];
+				order[left]=order[right];
+				order[right--]=temp;
+			}
+		}
+		split.middle=left;
+		return split;
+	}
+
+	/** Assignment of a part of the range of a cluster to the 2 centroids of its split*/
+	private class SplitPartition {
+		final int from;
+		final int to;
+		final double[] sums = new double[2*dimensions];
+		final long[] counts = new long[2];
+		final double[] sse = new double[2];
+		boolean changed;
+
+		SplitPartition(int from, int to) {
+			this.from=from;
+			this.to=to;
+		}
+
+		void assign(double[] centroids) {
+			Arrays.fill(sums, 0);
+			counts[0]=counts[1]=0;
+			sse[0]=sse[1]=0;
+			changed=false;
+			for (int i = from; i < to; i++) {
+				int pointId = order[i];
+				double squareDistance0 = dataset.squareDistance(pointId, centroids, 0);
+				double squareDistance1 = dataset.squareDistance(pointId, centroids, dimensions);
+				/**ties go to the side 0*/
+				byte side = (byte)(squareDistance1<squareDistance0?1:0);
+				if(sides[pointId]!=side) {
+					changed=true;
+				}
+				sides[pointId]=side;
+				counts[side]++;
+				sse[side]+=Math.min(squareDistance0, squareDistance1);
+				int offset = dataset.offset(pointId);
+				for (int dimensionId = 0; dimensionId < dimensions; dimensionId++) {
+					sums[side*dimensions+dimensionId]+=dataset.getValues()[offset+dimensionId];
+				}
+			}
+		}
+	}
+
+	/** The leaves become the k clusters (in their creation order); any missing cluster copies the first centroid*/
+	private void assignToLeaves(List<Cluster> leaves) {
+		double cost=0;
+		for (int clusterId = 0; clusterId < totalClusters; clusterId++) {
+			Cluster leaf = leaves.get(Math.min(clusterId, leaves.size()-1));
+			System.arraycopy(clusterId<leaves.size()?leaf.centroid:leaves.get(0).centroid, 0, centroids, clusterId*dimensions, dimensions);
+			if(clusterId>=leaves.size())
+				continue;
+			for (int i = leaf.from; i < leaf.to; i++) {
+				assignedClusters[order[i]]=clusterId;
+				squareDistances[order[i]]=dataset.squareDistance(order[i], centroids, clusterId*dimensions);
+				cost+=squareDistances[order[i]];
+			}
+		}
+		currentCost=cost/dataset.getSize();
+		if(ClusteringAlgorithms.DEBUG_MODE) {
+			System.out.printf("Bisecting : %d clusters after %d 2-means iterations, cost=%.3f\n", leaves.size(), splitIterations, currentCost);
+		}
+	}
+
+	private double[] mean(int from, int to) {
+		double[] mean = new double[dimensions];
+		for (int i = from; i < to; i++) {
+			int offset = dataset.offset(order[i]);
+			for (int dimensionId = 0; dimensionId < dimensions; dimensionId++) {
+				mean[dimensionId]+=dataset.getValues()[offset+dimensionId];
+			}
+		}
+		for (int dimensionId = 0; dimensionId < dimensions; dimensionId++) {
+			mean[dimensionId]/=Math.max(1, to-from);
+		}
+		return mean;
+	}
+
+	private double[] copyCentroid(double[] splitCentroids, int side) {
+		double[] centroid = new double[dimensions];
+		System.arraycopy(splitCentroids, side*dimensions, centroid, 0, dimensions);
+		return centroid;
+	}
+
+	/**@return # of 2-means iterations of the splits (plus the refinement iterations)*/
+	@Override
+	public int getIterations() {
+		return splitIterations+super.getIterations();
+	}
+
+	@Override
+	public long getDistanceCalculations() {
+		return splitDistanceCalculations+super.getDistanceCalculations();
+	}
+}
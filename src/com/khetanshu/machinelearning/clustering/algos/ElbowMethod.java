@@ -0,0 +1,145 @@
+package com.khetanshu.machinelearning.clustering.algos;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import com.khetanshu.machinelearning.clustering.main.ClusteringAlgorithms;
+import com.khetanshu.machinelearning.clustering.util.CONSTANTS;
+import com.khetanshu.machinelearning.clustering.util.Parallelism;
+import com.khetanshu.machinelearning.clustering.vo.Dataset;
+
+/**
+ * Finds the # of clusters by the elbow method i.e. fits k-means for every k of [minK, maxK] and picks the knee of the
+ * curve of the cost over k, by "kneedle" (Satopaa et al.): both axes are normalized to [0,1] and the knee is the k
+ * farthest below the straight line from the first to the last point of the (decreasing) curve.
+ *
+ * The k values are fitted concurrently (no output per k), or, when warm started, one after the other where k starts
+ * from the k-1 fitted centroids plus one chosen by D² sampling (hence a few iterations each). The silhouette of each
+ * k is only printed when asked, as it costs O(n^2) per k.
+ *
+ * All the seeds are derived from the given seed hence the same seed gives the same k whatever the parallelism level.
+ *
+ * DATA STRUCTURE USED:
+ * 1. Array (one k-means and cost per k)
+ * 2. Fork-Join Pool (shared by the k values and by their own parallel iterations)
+ *
+ * ASYMPTOTIC COMPLEXITY(Worst case):
+ * O(K * cost of one k-means / p) (+ O(K * n^2 * d) with the silhouettes)
+ *
+ * where,
+ * K : # of k values, n : # of point, d : number of attributes, p : parallelism
+ */
+public class ElbowMethod {
+	private final Dataset dataset;
+	private final int minClusters;
+	private final int maxClusters;
+	private final int type;
+	private final boolean warmStart;
+	private final boolean printSilhouette;
+	private final long[] seeds;
+	private final Kmeans[] runs;
+	private final double[] costs;
+
+	public ElbowMethod(Dataset dataset, int type) {
+		this(dataset, ClusteringAlgorithms.ELBOW_MIN_CLUSTERS, ClusteringAlgorithms.ELBOW_MAX_CLUSTERS, type,
+				ClusteringAlgorithms.ELBOW_WARM_START, ClusteringAlgorithms.ELBOW_SILHOUETTE,
+				ClusteringAlgorithms.RANDOM_SEED!=null?ClusteringAlgorithms.RANDOM_SEED:System.nanoTime());
+	}
+
+	/** @param( 	minClusters, maxClusters	= range of the k values to be tried,
+	 * 			type						= engine of each k {LLOYDS, KMEANS_PLUS_PLUS, ELKAN, HAMERLY, MINI_BATCH, KD_TREE, BISECTING},
+	 * 			warmStart					= k starts from the k-1 fitted centroids (the k values are then fitted in order);
+	 * 										  ignored (cold runs) for BISECTING, which splits all the points from scratch,
+	 * 			printSilhouette				= print the silhouette score of each k,
+	 * 			seed						= seed the seeds of the k values are derived from)*/
+	public ElbowMethod(Dataset dataset, int minClusters, int maxClusters, int type, boolean warmStart, boolean printSilhouette, long seed) {
+		this.dataset=dataset;
+		this.minClusters=Math.max(1, minClusters);
+		this.maxClusters=Math.max(this.minClusters, Math.min(maxClusters, dataset.getSize()));
+		this.type=type;
+		if(warmStart && type==CONSTANTS.BISECTING && !dataset.isWeighted()) {
+			System.out.println("Warm start ignored for BISECTING (it can't start from given centroids) : cold runs instead");
+			warmStart=false;
+		}
+		this.warmStart=warmStart;
+		this.printSilhouette=printSilhouette;
+		this.seeds=new long[this.maxClusters-this.minClusters+1];
+		this.runs=new Kmeans[seeds.length];
+		this.costs=new double[seeds.length];
+		Random random = new Random(seed);
+		for (int i = 0; i < seeds.length; i++) {
+			seeds[i]=random.nextLong();
+		}
+	}
+
+	/** @return the k at the knee of the cost curve*/
+	public int findNoOfClusters() {
+		if(warmStart) {
+			for (int i = 0; i < runs.length; i++) {
+				run(i);
+			}
+		}else {
+			Parallelism.getPool().submit(() -> IntStream.range(0, runs.length).parallel().forEach(this::run)).join();
+		}
+		double previousCost=Double.NaN;
+		for (int i = 0; i < runs.length; i++) {
+			System.out.printf("K= %2d -> aggregate Kmean cost= %.3f, Decline= %.3f (%d iterations)\n", minClusters+i, costs[i],
+					Double.isNaN(previousCost)?0:previousCost-costs[i], runs[i].getIterations());
+			previousCost=costs[i];
+			if(printSilhouette && minClusters+i>1) {
+				runs[i].printSilhouetteScores();
+			}
+		}
+		int knee = findKnee(minClusters, costs);
+		System.out.printf("Knee of the cost curve at K= %d\n", knee);
+		return knee;
+	}
+
+	private void run(int i) {
+		int totalClusters = minClusters+i;
+		Kmeans kmeans;
+		if(warmStart && i>0) {
+			/**the k-1 fitted centroids plus one by D² sampling*/
+			double[] initialCentroids = Arrays.copyOf(runs[i-1].getCentroids(), totalClusters*dataset.getDimensions());
+			new KmeansSeeding(dataset, new Random(seeds[i]), Parallelism.getPool()).kmeansPlusPlus(totalClusters-1, totalClusters, initialCentroids);
+			kmeans = Kmeans.newInstance(dataset, totalClusters, type, initialCentroids);
+		}else {
+			kmeans = Kmeans.newInstance(dataset, totalClusters, type, seeds[i]);
+		}
+		kmeans.fit();
+		runs[i]=kmeans;
+		costs[i]=kmeans.calculateAggregateClusteringCost();
+	}
+
+	/** Kneedle over the (decreasing) costs of k = {minClusters, minClusters+1, ...}
+	 * @return the k whose normalized cost is the farthest below the line from the first to the last cost*/
+	public static int findKnee(int minClusters, double[] costs) {
+		int last = costs.length-1;
+		double range = costs[0]-costs[last];
+		if(last<2 || range<=0) {
+			return minClusters;
+		}
+		int knee=0;
+		double maxDifference=Double.NEGATIVE_INFINITY;
+		for (int i = 0; i <= last; i++) {
+			double x = (double)i/last;
+			double y = (costs[i]-costs[last])/range;
+			if((1-x)-y>maxDifference) {
+				maxDifference=(1-x)-y;
+				knee=i;
+			}
+		}
+		return minClusters+knee;
+	}
+
+	/** @return the aggregate clustering cost of each k {minK, minK+1, ...} (after {@link #findNoOfClusters()})*/
+	public double[] getCosts() {
+		return costs;
+	}
+
+	/** @return the fitted k-means of each k {minK, minK+1, ...} (after {@link #findNoOfClusters()})*/
+	public Kmeans[] getRuns() {
+		return runs;
+	}
+}
@@ -0,0 +1,133 @@
+package com.khetanshu.machinelearning.clustering.algos;
+
+import com.khetanshu.machinelearning.clustering.util.CONSTANTS;
+import com.khetanshu.machinelearning.clustering.vo.Dataset;
+
+/**
+ * Elkan's accelerated k-means: same assignments as Lloyd's (for the same initial centroids, i.e. KMEAN++ seeding)
+ * but most of the point to centroid distances are skipped using the triangle inequality.
+ *
+ * For each point it keeps an upper bound of the distance from its centroid and a lower bound of the distance from
+ * every centroid. A centroid "c" can't be closer than the assigned centroid "a" if
+ * - upper(x) < lower(x,c)			or
+ * - upper(x) < d(a,c)/2				(centroid to centroid distances are calculated once per iteration)
+ * and no centroid can if upper(x) < min{d(a,c)}/2. After the update the bounds are loosened by the centroids' shifts.
+ * On a tie the centroid with the lower index is chosen, same as Lloyd's.
+ *
+ * DATA STRUCTURE USED:
+ * 1. Array (n upper bounds, n*k lower bounds, k*k centroid distances)
+ *
+ * ASYMPTOTIC COMPLEXITY(Worst case):
+ * O(n*k*d + k^2*d) per iteration, but typically only a small fraction of the n*k distances are calculated
+ * once the centroids stop moving much; memory O(n*k)
+ *
+ * where,
+ * n : # of point ,  k : number of clusters,  d : number of attributes
+ */
+public class ElkanKmeans extends Kmeans {
+	private double[] upperBounds;			/**<per point, >= distance from its assigned centroid*/
+	private double[] lowerBounds;			/**<per point and centroid (n*k), <= distance from the centroid*/
+	private double[] centroidDistances;	/**<k*k distances between the centroids*/
+	private double[] halfMinDistances;		/**<per centroid, half of the distance from the nearest other centroid*/
+	private double[] shifts;				/**<per centroid, distance moved by the last update*/
+
+	public ElkanKmeans(Dataset dataset, int totalClusters, long seed) {
+		this(dataset, totalClusters, seed, null);
+	}
+
+	/** @param initialCentroids = flattened k*d centroids to start from (warm start, no seeding), null to seed by k-means++*/
+	public ElkanKmeans(Dataset dataset, int totalClusters, long seed, double[] initialCentroids) {
+		super(dataset, totalClusters, CONSTANTS.ELKAN, seed, initialCentroids);
+		upperBounds = new double[dataset.getSize()];
+		lowerBounds = new double[dataset.getSize()*totalClusters];
+		centroidDistances = new double[totalClusters*totalClusters];
+		halfMinDistances = new double[totalClusters];
+		shifts = new double[totalClusters];
+	}
+
+	@Override
+	protected void beforeReform() {
+		calculateCentroidDistances(centroidDistances, halfMinDistances);
+	}
+
+	@Override
+	protected int assignNearestCluster(int pointId, double[] centroidSquareDistances) {
+		int assignedCluster = assignedClusters[pointId];
+		int lowerOffset = pointId*totalClusters;
+		if(assignedCluster<0) {
+			/**First pass: all the distances are calculated, which initializes all the bounds*/
+			for (int clusterId = 0; clusterId < totalClusters; clusterId++) {
+				double squareDistance = dataset.squareDistance(pointId, centroids, clusterId*dimensions);
+				lowerBounds[lowerOffset+clusterId]=Math.sqrt(squareDistance);
+				if(squareDistance<squareDistances[pointId]) {
+					squareDistances[pointId]=squareDistance;
+					assignedCluster=clusterId;
+				}
+			}
+			assignedClusters[pointId]=assignedCluster;
+			upperBounds[pointId]=lowerBounds[lowerOffset+assignedCluster];
+			return totalClusters;
+		}
+		/**Loosen the bounds by the shift of the centroids in the last update*/
+		double upperBound = upperBounds[pointId]+shifts[assignedCluster];
+		for (int clusterId = 0; clusterId < totalClusters; clusterId++) {
+			lowerBounds[lowerOffset+clusterId]=Math.max(0, lowerBounds[lowerOffset+clusterId]-shifts[clusterId]);
+		}
+		upperBounds[pointId]=upperBound;
+		if(upperBound<halfMinDistances[assignedCluster]) {
+			return 0;
+		}
+		int calculated=0;
+		boolean tight=false;
+		double minSquareDistance=0;
+		for (int clusterId = 0; clusterId < totalClusters; clusterId++) {
+			if(clusterId==assignedCluster || !isCandidate(upperBound, lowerOffset, assignedCluster, clusterId)) {
+				continue;
+			}
+			if(!tight) {
+				/**Make the upper bound exact and check again*/
+				minSquareDistance = dataset.squareDistance(pointId, centroids, assignedCluster*dimensions);
+				upperBound = Math.sqrt(minSquareDistance);
+				lowerBounds[lowerOffset+assignedCluster]=upperBound;
+				calculated++;
+				tight=true;
+				if(!isCandidate(upperBound, lowerOffset, assignedCluster, clusterId)) {
+					continue;
+				}
+			}
+			double squareDistance = dataset.squareDistance(pointId, centroids, clusterId*dimensions);
+			double distance = Math.sqrt(squareDistance);
+			lowerBounds[lowerOffset+clusterId]=distance;
+			calculated++;
+			if(squareDistance<minSquareDistance || (squareDistance==minSquareDistance && clusterId<assignedCluster)) {
+				minSquareDistance=squareDistance;
+				upperBound=distance;
+				assignedCluster=clusterId;
+			}
+		}
+		upperBounds[pointId]=upperBound;
+		assignedClusters[pointId]=assignedCluster;
+		if(tight) {
+			squareDistances[pointId]=minSquareDistance;
+		}
+		return calculated;
+	}
+
+	/** @return false iff the centroid "clusterId" surely isn't nearer than the assigned one; when the bounds are equal the
+	 * centroid with a lower index is still a candidate as it would win a tie*/
+	private boolean isCandidate(double upperBound, int lowerOffset, int assignedCluster, int clusterId) {
+		double lowerBound = Math.max(lowerBounds[lowerOffset+clusterId], centroidDistances[assignedCluster*totalClusters+clusterId]/2);
+		return clusterId<assignedCluster?upperBound>=lowerBound:upperBound>lowerBound;
+	}
+
+	@Override
+	protected void afterCentroidsMoved(double[] previousCentroids) {
+		calculateShifts(previousCentroids, shifts);
+	}
+
+	@Override
+	protected void afterConvergence() {
+		/**The bounds aren't exact distances*/
+		recalculateSquareDistances();
+	}
+}
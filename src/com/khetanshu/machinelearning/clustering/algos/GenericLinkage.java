@@ -0,0 +1,139 @@
+package com.khetanshu.machinelearning.clustering.algos;
+
+import java.util.Arrays;
+
+import com.khetanshu.corelib.IndexedMinHeap;
+import com.khetanshu.machinelearning.clustering.vo.DistanceMatrix;
+import com.khetanshu.machinelearning.clustering.vo.MergeHistory;
+
+/**
+ * Any Lance–Williams linkage, and the only way for the non reducible ones (centroid, median), by always merging the
+ * closest pair of clusters: each row of the condensed matrix caches its nearest cluster among the higher indices, and
+ * the rows are kept in an indexed min-heap by that distance, so the closest pair is at the top of the heap instead of
+ * being searched for among all the pairs. After a merge the row of the merged cluster is calculated (see
+ * {@link LanceWilliams}) and the cached neighbours are patched, each patched row being re-keyed in the heap in
+ * O(lg(n)); a row is scanned again only if its nearest cluster was merged into a farther one.
+ *
+ * The merges are kept in the order they were done, i.e. NOT sorted by height, since a centroid or median merge may be
+ * lower than an earlier one (inversion); cutting the first n-k merges is then still the k clusters of the run.
+ * Ties are broken deterministically: the pair of the lowest indices is merged first, and the merged cluster takes the
+ * row of the lower index.
+ *
+ * DATA STRUCTURE USED:
+ * 1. Array (condensed distance matrix, nearest cluster and its distance per row)
+ * 2. Indexed Min-Heap (rows by the distance of their nearest cluster)
+ *
+ * ASYMPTOTIC COMPLEXITY(Worst case):
+ * O(n^3) time [O(n^2) in practice, as a merge updates one row in O(n) and re-keys the patched rows in O(lg(n)) each,
+ * and few rows are scanned again], over the O(n^2) matrix
+ *
+ * where,
+ * n : # of point
+ */
+public class GenericLinkage {
+	private final DistanceMatrix matrix;
+	private final int linkageType;
+	private final int size;
+	private final boolean[] active;
+	private final int[] nearest;			/**<nearest active cluster of a higher index per row, -1 if none*/
+	private final double[] minDistances;	/**<distance of the row from its nearest cluster*/
+	private final IndexedMinHeap rows;		/**<rows having a nearest cluster, by minDistances*/
+
+	/** @param( 	matrix		= distances between the points, updated in place as the clusters merge,
+	 * 			linkageType	= any, typically CENTROID or MEDIAN)*/
+	public GenericLinkage(DistanceMatrix matrix, int linkageType) {
+		this.matrix=matrix;
+		this.linkageType=linkageType;
+		this.size=matrix.getSize();
+		this.active=new boolean[size];
+		this.nearest=new int[size];
+		this.minDistances=new double[size];
+		this.rows=new IndexedMinHeap(size);
+	}
+
+	/** @return all the n-1 merges (the full dendrogram), in the order they were done*/
+	public MergeHistory findMerges() {
+		MergeHistory mergeHistory = new MergeHistory(size, linkageType);
+		int[] clusterNodes = new int[size];
+		int[] clusterSizes = new int[size];
+		Arrays.fill(active, true);
+		Arrays.fill(clusterSizes, 1);
+		for (int row = 0; row < size; row++) {
+			clusterNodes[row]=row;
+			findNearest(row);
+		}
+		for (int merge = 0; merge < size-1; merge++) {
+			/**Closest pair : the row of the minimum cached distance (the lowest row of the lowest pair if tied)*/
+			int a = rows.peek();
+			int b = nearest[a];
+			int mergedSize = clusterSizes[a]+clusterSizes[b];
+			clusterNodes[a]=mergeHistory.addMerge(clusterNodes[a], clusterNodes[b], minDistances[a], mergedSize);
+			merge(a, b, clusterSizes);
+			clusterSizes[a]=mergedSize;
+		}
+		return mergeHistory;
+	}
+
+	/** Lance–Williams update of the row "keep" (which becomes A∪B) from the rows "keep" and "drop" (keep < drop), and
+	 * of the cached nearest clusters*/
+	private void merge(int keep, int drop, int[] clusterSizes) {
+		active[drop]=false;
+		rows.remove(drop);
+		long sizeA = clusterSizes[keep];
+		long sizeB = clusterSizes[drop];
+		double distanceAB = matrix.get(keep, drop);
+		for (int k = 0; k < size; k++) {
+			if(!active[k] || k==keep)
+				continue;
+			double distance = LanceWilliams.update(linkageType, matrix.get(keep, k), matrix.get(drop, k), distanceAB, sizeA, sizeB,
+					clusterSizes[k]);
+			matrix.set(keep, k, distance);
+			/**As stored i.e. rounded in the single precision mode, like the scanned ones*/
+			distance = matrix.get(keep, k);
+			if(k<keep) {
+				/**The rows of the lower indices hold the merged cluster in their part of the matrix*/
+				if(nearest[k]==keep || nearest[k]==drop) {
+					/**Not farther than the cluster it replaces : the merged cluster (lower index) is the nearest one*/
+					if(distance<=minDistances[k]) {
+						setNearest(k, keep, distance);
+					}else {
+						findNearest(k);
+					}
+				}else if(distance<minDistances[k] || (distance==minDistances[k] && keep<nearest[k])) {
+					setNearest(k, keep, distance);
+				}
+			}else if(k<drop && nearest[k]==drop) {
+				/**Its nearest cluster is merged into the row "keep", out of the part of the row "k"*/
+				findNearest(k);
+			}
+		}
+		findNearest(keep);
+	}
+
+	/** Scans the row for its nearest active cluster (of a higher index)*/
+	private void findNearest(int row) {
+		int nearestCluster=-1;
+		double minDistance=Double.POSITIVE_INFINITY;
+		for (int k = row+1; k < size; k++) {
+			if(active[k]) {
+				double distance = matrix.get(row, k);
+				if(nearestCluster<0 || distance<minDistance) {
+					nearestCluster=k;
+					minDistance=distance;
+				}
+			}
+		}
+		setNearest(row, nearestCluster, minDistance);
+	}
+
+	/** Caches the nearest cluster of the row and re-keys the row in the heap (out of it if none i.e. -1)*/
+	private void setNearest(int row, int nearestCluster, double distance) {
+		nearest[row]=nearestCluster;
+		minDistances[row]=distance;
+		if(nearestCluster<0) {
+			rows.remove(row);
+		}else {
+			rows.set(row, distance);
+		}
+	}
+}
@@ -0,0 +1,117 @@
+package com.khetanshu.machinelearning.clustering.algos;
+
+import com.khetanshu.machinelearning.clustering.util.CONSTANTS;
+import com.khetanshu.machinelearning.clustering.vo.Dataset;
+
+/**
+ * Hamerly's accelerated k-means: same assignments as Lloyd's (for the same initial centroids, i.e. KMEAN++ seeding)
+ * with only TWO bounds per point, which suits low dimensional data where Elkan's k lower bounds per point
+ * cost more memory (and bound updates) than the distances they save.
+ *
+ * For each point it keeps an upper bound of the distance from its centroid "a" and ONE lower bound of the distance
+ * from every other centroid (i.e. from the second nearest). No other centroid can be nearer if
+ * 		upper(x) < max{ lower(x), min{d(a,c)}/2 }
+ * otherwise the upper bound is made exact and checked again, and only then all the k distances are calculated.
+ * After the update the upper bound grows by the shift of "a" and the lower bound shrinks by the largest shift of the
+ * other centroids. On a tie the centroid with the lower index is chosen, same as Lloyd's.
+ *
+ * DATA STRUCTURE USED:
+ * 1. Array (n upper bounds, n lower bounds, k half distances)
+ *
+ * ASYMPTOTIC COMPLEXITY(Worst case):
+ * O(n*k*d + k^2*d) per iteration, typically a small fraction of it; memory O(n)
+ *
+ * where,
+ * n : # of point ,  k : number of clusters,  d : number of attributes
+ */
+public class HamerlyKmeans extends Kmeans {
+	private double[] upperBounds;			/**<per point, >= distance from its assigned centroid*/
+	private double[] lowerBounds;			/**<per point, <= distance from any other centroid*/
+	private double[] halfMinDistances;		/**<per centroid, half of the distance from the nearest other centroid*/
+	private double[] shifts;				/**<per centroid, distance moved by the last update*/
+	private int maxShiftCluster;			/**<centroid which moved the most in the last update (i.e. by maxShift)*/
+	private double secondMaxShift;
+
+	public HamerlyKmeans(Dataset dataset, int totalClusters, long seed) {
+		this(dataset, totalClusters, seed, null);
+	}
+
+	/** @param initialCentroids = flattened k*d centroids to start from (warm start, no seeding), null to seed by k-means++*/
+	public HamerlyKmeans(Dataset dataset, int totalClusters, long seed, double[] initialCentroids) {
+		super(dataset, totalClusters, CONSTANTS.HAMERLY, seed, initialCentroids);
+		upperBounds = new double[dataset.getSize()];
+		lowerBounds = new double[dataset.getSize()];
+		halfMinDistances = new double[totalClusters];
+		shifts = new double[totalClusters];
+	}
+
+	@Override
+	protected void beforeReform() {
+		calculateCentroidDistances(null, halfMinDistances);
+	}
+
+	@Override
+	protected int assignNearestCluster(int pointId, double[] centroidSquareDistances) {
+		int assignedCluster = assignedClusters[pointId];
+		if(assignedCluster>=0) {
+			/**Loosen the bounds by the shifts of the centroids in the last update*/
+			upperBounds[pointId]+=shifts[assignedCluster];
+			lowerBounds[pointId]-= assignedCluster==maxShiftCluster?secondMaxShift:maxShift;
+			double bound = Math.max(lowerBounds[pointId], halfMinDistances[assignedCluster]);
+			if(upperBounds[pointId]<bound) {
+				return 0;
+			}
+			/**Make the upper bound exact and check again*/
+			double squareDistance = dataset.squareDistance(pointId, centroids, assignedCluster*dimensions);
+			upperBounds[pointId]=Math.sqrt(squareDistance);
+			squareDistances[pointId]=squareDistance;
+			if(upperBounds[pointId]<bound) {
+				return 1;
+			}
+		}
+		/**Calculate all the distances and keep the nearest and the second nearest*/
+		double minSquareDistance=Double.MAX_VALUE;
+		double secondMinSquareDistance=Double.MAX_VALUE;
+		int newClusterId=-1;
+		dataset.squareDistances(pointId, centroids, totalClusters, centroidSquareDistances);
+		for (int clusterId = 0; clusterId < totalClusters; clusterId++) {
+			double squareDistance = centroidSquareDistances[clusterId];
+			if(squareDistance<minSquareDistance) {
+				secondMinSquareDistance=minSquareDistance;
+				minSquareDistance=squareDistance;
+				newClusterId=clusterId;
+			}else if(squareDistance<secondMinSquareDistance) {
+				secondMinSquareDistance=squareDistance;
+			}
+		}
+		assignedClusters[pointId]=newClusterId;
+		squareDistances[pointId]=minSquareDistance;
+		upperBounds[pointId]=Math.sqrt(minSquareDistance);
+		lowerBounds[pointId]=Math.sqrt(secondMinSquareDistance);
+		return assignedCluster>=0?totalClusters+1:totalClusters;
+	}
+
+	@Override
+	protected void afterCentroidsMoved(double[] previousCentroids) {
+		calculateShifts(previousCentroids, shifts);
+		/**maxShift (inherited) is found again along with the second largest shift, to the same value*/
+		maxShift=0;
+		secondMaxShift=0;
+		maxShiftCluster=-1;
+		for (int clusterId = 0; clusterId < totalClusters; clusterId++) {
+			if(shifts[clusterId]>maxShift) {
+				secondMaxShift=maxShift;
+				maxShift=shifts[clusterId];
+				maxShiftCluster=clusterId;
+			}else if(shifts[clusterId]>secondMaxShift) {
+				secondMaxShift=shifts[clusterId];
+			}
+		}
+	}
+
+	@Override
+	protected void afterConvergence() {
+		/**The bounds aren't exact distances*/
+		recalculateSquareDistances();
+	}
+}
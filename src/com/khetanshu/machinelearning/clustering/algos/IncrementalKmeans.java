@@ -0,0 +1,169 @@
+package com.khetanshu.machinelearning.clustering.algos;
+
+import java.util.stream.IntStream;
+
+import com.khetanshu.machinelearning.clustering.main.ClusteringAlgorithms;
+import com.khetanshu.machinelearning.clustering.util.CONSTANTS;
+import com.khetanshu.machinelearning.clustering.util.Parallelism;
+import com.khetanshu.machinelearning.clustering.vo.Dataset;
+
+/**
+ * Updates a saved k-means model with the rows appended to the dataset since it was trained, instead of clustering
+ * all the rows again from new seeds. The appended rows are the ones after the # of rows recorded in the model (not its
+ * # of points, which is a total weight for a weighted dataset e.g. a coreset).
+ *
+ * The sufficient statistics of each cluster (# of points and sum of the points i.e. size*centroid) are restored from
+ * the model, the new rows are assigned to the nearest centroid and added to them, giving the exact means of the old
+ * and new points of each cluster. Only when the update drifts by more than the threshold i.e.
+ * - a centroid has moved by a square distance of more than "threshold" times the mean square distance of the points
+ *   from their centroids, or
+ * - the mean square distance of the new rows is more than (1+threshold) times the one of the training points
+ * a few Lloyd's iterations are run over all the rows, warm started from the updated centroids.
+ *
+ * DATA STRUCTURE USED:
+ * 1. Array (flattened k*d sums)
+ * 2. Fork-Join Pool
+ *
+ * ASYMPTOTIC COMPLEXITY(Worst case):
+ * Update without drift	: O(a*k*d / p)
+ * Update with drift		: O(a*k*d / p + i*n*k*d / p)
+ *
+ * where,
+ * a : # of appended rows, n : # of all rows, k : number of clusters,  d : number of attributes,
+ * i : # of warm started iterations, p : parallelism
+ */
+public class IncrementalKmeans {
+	private final KmeansModel model;
+	private final int totalClusters;
+	private final int dimensions;
+	private final double driftThreshold;
+	private final int maxIterations;
+	private double drift;
+	private int iterations;
+
+	public IncrementalKmeans(KmeansModel model) {
+		this(model, ClusteringAlgorithms.INCREMENTAL_DRIFT_THRESHOLD, ClusteringAlgorithms.INCREMENTAL_MAX_ITERATIONS);
+	}
+
+	/** @param( 	model			= model trained on the first rows of the dataset,
+	 * 			driftThreshold	= drift above which all the rows are re-clustered,
+	 * 			maxIterations	= max # of warm started Lloyd's iterations of the re-clustering (0 = no limit))*/
+	public IncrementalKmeans(KmeansModel model, double driftThreshold, int maxIterations) {
+		this.model=model;
+		this.totalClusters=model.getTotalClusters();
+		this.dimensions=model.getDimensions();
+		this.driftThreshold=driftThreshold;
+		this.maxIterations=maxIterations;
+	}
+
+	/** Ingests the rows of the dataset after the ones the model was trained on
+	 * @return the updated model (the same model if no row was appended)*/
+	public KmeansModel update(Dataset dataset) {
+		return update(dataset, (int)model.getTrainedRows());
+	}
+
+	/** Ingests the rows [fromRow, n) of the dataset
+	 * @return the updated model (the same model if no row was appended)*/
+	public KmeansModel update(Dataset dataset, int fromRow) {
+		drift=0;
+		iterations=0;
+		if(dataset.getDimensions()!=dimensions) {
+			throw new IllegalArgumentException("The model has "+dimensions+" attributes but the dataset has "+dataset.getDimensions());
+		}
+		int appendedRows = dataset.getSize()-fromRow;
+		if(appendedRows<=0) {
+			return model;
+		}
+		/**Statistics of the appended rows, per fixed partition (reduced in order, hence independent of the parallelism)*/
+		int[] bounds = Kmeans.calculatePartitionBounds(appendedRows);
+		double[][] partitionSums = new double[bounds.length-1][totalClusters*dimensions];
+		long[][] partitionCounts = new long[bounds.length-1][totalClusters];
+		double[] partitionInertias = new double[bounds.length-1];
+		double[] oldCentroids = model.getCentroids();
+		Parallelism.getPool().submit(() -> IntStream.range(0, bounds.length-1).parallel().forEach(partition -> {
+			for (int pointId = fromRow+bounds[partition]; pointId < fromRow+bounds[partition+1]; pointId++) {
+				int offset = dataset.offset(pointId);
+				int clusterId = model.predict(dataset.getValues(), offset)-1;
+				partitionCounts[partition][clusterId]++;
+				partitionInertias[partition]+=dataset.squareDistance(pointId, oldCentroids, clusterId*dimensions);
+				for (int dimensionId = 0; dimensionId < dimensions; dimensionId++) {
+					partitionSums[partition][clusterId*dimensions+dimensionId]+=dataset.getValues()[offset+dimensionId];
+				}
+			}
+		})).join();
+
+		long[] counts = model.getClusterSizes();
+		double[] sums = new double[totalClusters*dimensions];
+		for (int clusterId = 0; clusterId < totalClusters; clusterId++) {
+			for (int dimensionId = 0; dimensionId < dimensions; dimensionId++) {
+				sums[clusterId*dimensions+dimensionId]=oldCentroids[clusterId*dimensions+dimensionId]*counts[clusterId];
+			}
+		}
+		double appendedInertia=0;
+		for (int partition = 0; partition < bounds.length-1; partition++) {
+			for (int i = 0; i < sums.length; i++) {
+				sums[i]+=partitionSums[partition][i];
+			}
+			for (int clusterId = 0; clusterId < totalClusters; clusterId++) {
+				counts[clusterId]+=partitionCounts[partition][clusterId];
+			}
+			appendedInertia+=partitionInertias[partition];
+		}
+
+		/**Updated means, and how far they (and the new rows) have drifted from the model*/
+		double[] centroids = oldCentroids.clone();
+		double maxSquareShift=0;
+		for (int clusterId = 0; clusterId < totalClusters; clusterId++) {
+			if(counts[clusterId]==0)
+				continue;
+			double squareShift=0;
+			for (int dimensionId = 0; dimensionId < dimensions; dimensionId++) {
+				int index = clusterId*dimensions+dimensionId;
+				centroids[index]=sums[index]/counts[clusterId];
+				squareShift+=(centroids[index]-oldCentroids[index])*(centroids[index]-oldCentroids[index]);
+			}
+			maxSquareShift=Math.max(maxSquareShift, squareShift);
+		}
+		/**Per (weighted) training point, as the inertia*/
+		long trainedPoints = model.getTotalPoints();
+		double meanSquareDistance = trainedPoints>0 ? model.getInertia()/trainedPoints : 0;
+		if(meanSquareDistance>0) {
+			drift=Math.max(maxSquareShift/meanSquareDistance, appendedInertia/appendedRows/meanSquareDistance-1);
+		}else {
+			drift=Double.POSITIVE_INFINITY;
+		}
+		if(ClusteringAlgorithms.DEBUG_MODE) {
+			System.out.printf("Ingested %d rows, drift=%.4f (threshold %.4f)\n", appendedRows, drift, driftThreshold);
+		}
+		if(drift<=driftThreshold) {
+			/**The inertia of the old points is the one from their old centroids i.e. an upper bound*/
+			return new KmeansModel(centroids, counts, model.getInertia()+appendedInertia, dataset.getSize(), totalClusters, dimensions,
+					dataset.getKernel());
+		}
+
+		/**Re-cluster all the rows, from the updated centroids (no seeding, hence LLOYDS)*/
+		Kmeans kmeans = new Kmeans(dataset, totalClusters, CONSTANTS.LLOYDS, 0L, centroids);
+		kmeans.setMaxIterations(maxIterations);
+		kmeans.fit();
+		iterations=kmeans.getIterations();
+		if(ClusteringAlgorithms.DEBUG_MODE) {
+			System.out.printf("Re-clustered all %d rows in %d iterations\n", dataset.getSize(), iterations);
+		}
+		return kmeans.getModel();
+	}
+
+	/** @return drift of the last update (see the class doc)*/
+	public double getDrift() {
+		return drift;
+	}
+
+	/** @return true iff the last update has re-clustered all the rows*/
+	public boolean hasReclustered() {
+		return iterations>0;
+	}
+
+	/** @return # of Lloyd's iterations of the last update (0 if it hasn't re-clustered)*/
+	public int getIterations() {
+		return iterations;
+	}
+}
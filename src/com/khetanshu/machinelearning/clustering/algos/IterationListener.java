@@ -0,0 +1,13 @@
+package com.khetanshu.machinelearning.clustering.algos;
+
+/**
+ * Progress of the k-means iterations, called after each update of the centroids
+ * (from the thread running the iterations) e.g. to log, plot or cancel ({@link Kmeans#cancel()}) a run.
+ */
+public interface IterationListener {
+	/** @param( 	iteration	= # of the iteration {1,2,3....},
+	 * 			inertia		= sum of the square distances of the points from their centroids (estimated on the batch by mini-batch),
+	 * 			shift		= largest (euclidean) distance a centroid has moved by the update,
+	 * 			reassigned	= # of points which have changed their cluster in the iteration)*/
+	void iterationCompleted(int iteration, double inertia, double shift, long reassigned);
+}
@@ -0,0 +1,400 @@
+package com.khetanshu.machinelearning.clustering.algos;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import com.khetanshu.machinelearning.clustering.util.CONSTANTS;
+import com.khetanshu.machinelearning.clustering.vo.Dataset;
+
+/**
+ * Filtering k-means (Kanungo et al.): Lloyd's iterations over a KD-tree of the points, built once per run.
+ *
+ * Each node of the tree keeps the bounding box of its points and the aggregates (sum, count, Σ|x-mean|²) of them.
+ * An iteration walks the tree with a set of candidate centroids: at each node the candidate "z*" nearest to the
+ * middle of the box is found, and every other candidate "z" which is farther than z* from the corner of the box
+ * most in the direction of z (hence from every point of the box) is filtered out. Once a single candidate is left the
+ * whole subtree is assigned to it at once and its aggregates are added to the centroid's sums, so neither the
+ * distances nor the sums of its points are calculated. At a leaf the remaining candidates are compared point by point.
+ *
+ * The assignments of an iteration are exactly those of Lloyd's for the same centroids: a candidate is only filtered
+ * out when it loses by more than the rounding error of the distances, and the remaining ones are compared in the
+ * same order with the same tie breaking (the lower index). The new centroids only differ from Lloyd's by the
+ * rounding of the sums (added up by nodes instead of point by point).
+ *
+ * The subtrees below a fixed depth are walked in parallel, each with its own accumulators reduced in order.
+ *
+ * DATA STRUCTURE USED:
+ * 1. KD-Tree (flattened in arrays, median split on the widest attribute)
+ * 2. Array (point order, per node box and aggregates, per subtree accumulators)
+ * 3. Fork-Join Pool
+ *
+ * ASYMPTOTIC COMPLEXITY(Worst case):
+ * Build: O(n*lg(n)*d) once
+ * Iteration: O(n*k*d / p) worst case, typically far fewer distances for small d and well separated clusters
+ *
+ * where,
+ * n : # of point ,  k : number of clusters,  d : number of attributes, p : parallelism
+ */
+public class KdTreeKmeans extends Kmeans {
+	/**Max # of points of a leaf*/
+	private static final int LEAF_SIZE=16;
+
+	private final int[] order;			/**<point ids, the points of a node are order[from, to)*/
+	private int totalNodes;
+	private int[] nodeFrom;
+	private int[] nodeTo;
+	private int[] nodeLeft;				/**<-1 for a leaf*/
+	private int[] nodeRight;
+	private double[] nodeMin;			/**<per node d lower corners of the bounding box*/
+	private double[] nodeMax;			/**<per node d upper corners of the bounding box*/
+	private double[] nodeSums;			/**<per node d sums of its points*/
+	private double[] nodeSquareDeviations;	/**<per node Σ|x-mean|² of its points, mean being theirs*/
+	private int[] nodeOwners;			/**<per node, the cluster all its points are assigned to, or -1 if mixed/unknown*/
+	private final double tieMargin;		/**<relative rounding error of a square distance (with a safety factor)*/
+	private SubTree[] subTrees;
+
+	public KdTreeKmeans(Dataset dataset, int totalClusters, long seed) {
+		this(dataset, totalClusters, seed, null);
+	}
+
+	/** @param initialCentroids = flattened k*d centroids to start from (warm start, no seeding), null to seed by k-means++*/
+	public KdTreeKmeans(Dataset dataset, int totalClusters, long seed, double[] initialCentroids) {
+		super(dataset, totalClusters, CONSTANTS.KD_TREE, seed, initialCentroids);
+		order = new int[dataset.getSize()];
+		for (int pointId = 0; pointId < order.length; pointId++) {
+			order[pointId]=pointId;
+		}
+		int capacity = 4*(dataset.getSize()/LEAF_SIZE+1)+1;
+		nodeFrom = new int[capacity];
+		nodeTo = new int[capacity];
+		nodeLeft = new int[capacity];
+		nodeRight = new int[capacity];
+		nodeMin = new double[capacity*dimensions];
+		nodeMax = new double[capacity*dimensions];
+		nodeSums = new double[capacity*dimensions];
+		nodeSquareDeviations = new double[capacity];
+		nodeOwners = new int[capacity];
+		tieMargin = 16.0*(dimensions+2)*Math.ulp(1.0);
+		buildNode(0, order.length);
+		Arrays.fill(nodeOwners, -1);
+		createSubTrees();
+	}
+
+	/** Builds the node of the points order[from, to) and (recursively) its children
+	 * @return index of the node*/
+	private int buildNode(int from, int to) {
+		int node = totalNodes++;
+		nodeFrom[node]=from;
+		nodeTo[node]=to;
+		nodeLeft[node]=-1;
+		nodeRight[node]=-1;
+		int boxOffset = node*dimensions;
+		Arrays.fill(nodeMin, boxOffset, boxOffset+dimensions, Double.MAX_VALUE);
+		Arrays.fill(nodeMax, boxOffset, boxOffset+dimensions, -Double.MAX_VALUE);
+		double[] values = dataset.getValues();
+		for (int i = from; i < to; i++) {
+			int pointOffset = dataset.offset(order[i]);
+			for (int dimensionId = 0; dimensionId < dimensions; dimensionId++) {
+				double value = values[pointOffset+dimensionId];
+				nodeMin[boxOffset+dimensionId]=Math.min(nodeMin[boxOffset+dimensionId], value);
+				nodeMax[boxOffset+dimensionId]=Math.max(nodeMax[boxOffset+dimensionId], value);
+				nodeSums[boxOffset+dimensionId]+=value;
+			}
+		}
+		/**Around the mean of the node (a second pass), so that no precision is lost for the points far from the origin*/
+		double squareDeviation=0;
+		for (int i = from; i < to; i++) {
+			int pointOffset = dataset.offset(order[i]);
+			for (int dimensionId = 0; dimensionId < dimensions; dimensionId++) {
+				double difference = values[pointOffset+dimensionId]-nodeSums[boxOffset+dimensionId]/(to-from);
+				squareDeviation+=difference*difference;
+			}
+		}
+		nodeSquareDeviations[node]=squareDeviation;
+		/**Split on the median of the widest attribute; a box of no width (identical points) stays a leaf*/
+		int splitDimension=0;
+		double maxWidth=0;
+		for (int dimensionId = 0; dimensionId < dimensions; dimensionId++) {
+			double width = nodeMax[boxOffset+dimensionId]-nodeMin[boxOffset+dimensionId];
+			if(width>maxWidth) {
+				maxWidth=width;
+				splitDimension=dimensionId;
+			}
+		}
+		if(to-from<=LEAF_SIZE || maxWidth==0) {
+			return node;
+		}
+		int middle = (from+to)>>>1;
+		selectMedian(from, to, middle, splitDimension);
+		nodeLeft[node]=buildNode(from, middle);
+		nodeRight[node]=buildNode(middle, to);
+		return node;
+	}
+
+	/** Quick select: reorders order[from, to) so that order[middle] has the point which would be there if sorted by the
+	 * attribute, with no greater one before it and no smaller one after it*/
+	private void selectMedian(int from, int to, int middle, int dimensionId) {
+		int low=from;
+		int high=to-1;
+		while(low<high) {
+			double pivot = dataset.getValue(order[(low+high)>>>1], dimensionId);
+			int i=low;
+			int j=high;
+			while(i<=j) {
+				while(dataset.getValue(order[i], dimensionId)<pivot) i++;
+				while(dataset.getValue(order[j], dimensionId)>pivot) j--;
+				if(i<=j) {
+					int swap=order[i];
+					order[i]=order[j];
+					order[j]=swap;
+					i++;
+					j--;
+				}
+			}
+			if(middle<=j) {
+				high=j;
+			}else if(middle>=i) {
+				low=i;
+			}else {
+				break;
+			}
+		}
+	}
+
+	/** The nodes at the depth which gives about as many subtrees as the partitions of Lloyd's (or the leaves above it)*/
+	private void createSubTrees() {
+		int target = calculatePartitionBounds(dataset.getSize()).length-1;
+		List<Integer> frontier = new ArrayList<>();
+		frontier.add(0);
+		boolean split=true;
+		while(frontier.size()<target && split) {
+			split=false;
+			List<Integer> next = new ArrayList<>();
+			for (int node : frontier) {
+				if(nodeLeft[node]<0) {
+					next.add(node);
+				}else {
+					next.add(nodeLeft[node]);
+					next.add(nodeRight[node]);
+					split=true;
+				}
+			}
+			frontier=next;
+		}
+		subTrees = new SubTree[frontier.size()];
+		for (int i = 0; i < subTrees.length; i++) {
+			subTrees[i]=new SubTree(frontier.get(i));
+		}
+	}
+
+	@Override
+	protected boolean reformClusters() {
+		beforeReform();
+		pool.submit(() -> IntStream.range(0, subTrees.length).parallel().forEach(i -> subTrees[i].reform())).join();
+		long iterationDistanceCalculations=0;
+		reassigned=0;
+		for (SubTree subTree : subTrees) {
+			iterationDistanceCalculations+=subTree.distanceCalculations;
+			reassigned+=subTree.reassigned;
+		}
+		recordIteration(iterationDistanceCalculations);
+		return reassigned>0;
+	}
+
+	@Override
+	protected void recalculateTheCentroids() {
+		double[] clustersSize= new double[totalClusters];
+		double[] sums = new double[centroids.length];
+		double[] squareDistanceSums = new double[totalClusters];
+		for (SubTree subTree : subTrees) {
+			for (int clusterId = 0; clusterId < totalClusters; clusterId++) {
+				clustersSize[clusterId]+=subTree.counts[clusterId];
+				squareDistanceSums[clusterId]+=subTree.squareDistanceSums[clusterId];
+			}
+			for (int i = 0; i < sums.length; i++) {
+				sums[i]+=subTree.sums[i];
+			}
+		}
+		updateCentroids(clustersSize, sums, squareDistanceSums);
+	}
+
+	@Override
+	protected void afterConvergence() {
+		/**The points of the subtrees assigned at once have no distance calculated*/
+		recalculateSquareDistances();
+	}
+
+	/** Walk of one subtree per iteration, with its own accumulators*/
+	private class SubTree {
+		private final int root;
+		private final double[] sums;
+		private final long[] counts;
+		private final double[] squareDistanceSums;	/**<per cluster, Σ|x-c|² of its points, c being its centroid*/
+		private final int[][] candidates;	/**<candidate centroids per level of the walk*/
+		private long reassigned;
+		private long distanceCalculations;
+
+		SubTree(int root) {
+			this.root=root;
+			sums=new double[centroids.length];
+			counts=new long[totalClusters];
+			squareDistanceSums=new double[totalClusters];
+			candidates=new int[depth(root)+1][totalClusters];
+			for (int clusterId = 0; clusterId < totalClusters; clusterId++) {
+				candidates[0][clusterId]=clusterId;
+			}
+		}
+
+		private int depth(int node) {
+			if(nodeLeft[node]<0)
+				return 1;
+			return 1+Math.max(depth(nodeLeft[node]), depth(nodeRight[node]));
+		}
+
+		void reform() {
+			Arrays.fill(sums, 0.0);
+			Arrays.fill(counts, 0);
+			Arrays.fill(squareDistanceSums, 0.0);
+			reassigned=0;
+			distanceCalculations=0;
+			filter(root, 0, totalClusters);
+		}
+
+		/** Assigns the points of the node among the first "count" candidates of the level (in ascending order)*/
+		private void filter(int node, int level, int count) {
+			int[] current = candidates[level];
+			if(count==1) {
+				assignSubtree(node, current[0]);
+				return;
+			}
+			if(nodeLeft[node]<0) {
+				assignLeaf(node, current, count);
+				return;
+			}
+			int boxOffset = node*dimensions;
+			/**The candidate nearest to the middle of the box*/
+			int nearest=-1;
+			double minSquareDistance=Double.MAX_VALUE;
+			for (int i = 0; i < count; i++) {
+				int centroidOffset = current[i]*dimensions;
+				double squareDistance=0;
+				for (int dimensionId = 0; dimensionId < dimensions; dimensionId++) {
+					double difference = (nodeMin[boxOffset+dimensionId]+nodeMax[boxOffset+dimensionId])/2-centroids[centroidOffset+dimensionId];
+					squareDistance+=difference*difference;
+				}
+				if(squareDistance<minSquareDistance) {
+					minSquareDistance=squareDistance;
+					nearest=current[i];
+				}
+			}
+			distanceCalculations+=count;
+			int[] next = candidates[level+1];
+			int nextCount=0;
+			for (int i = 0; i < count; i++) {
+				if(current[i]==nearest || !isDominated(current[i], nearest, boxOffset)) {
+					next[nextCount++]=current[i];
+				}
+			}
+			distanceCalculations+=2*(count-1);
+			if(nextCount==1) {
+				assignSubtree(node, next[0]);
+				return;
+			}
+			int left=nodeLeft[node];
+			int right=nodeRight[node];
+			if(nodeOwners[node]>=0) {
+				/**The children's owners may be stale since the node was assigned at once*/
+				nodeOwners[left]=nodeOwners[node];
+				nodeOwners[right]=nodeOwners[node];
+			}
+			filter(left, level+1, nextCount);
+			filter(right, level+1, nextCount);
+			nodeOwners[node]=nodeOwners[left]==nodeOwners[right]?nodeOwners[left]:-1;
+		}
+
+		/** @return true iff every point of the box is surely (beyond the rounding errors) farther from the centroid
+		 * "candidate" than from "nearest", i.e. so is the corner of the box most in the direction of "candidate"*/
+		private boolean isDominated(int candidate, int nearest, int boxOffset) {
+			int candidateOffset = candidate*dimensions;
+			int nearestOffset = nearest*dimensions;
+			double candidateSquareDistance=0;
+			double nearestSquareDistance=0;
+			double squareDiagonal=0;
+			for (int dimensionId = 0; dimensionId < dimensions; dimensionId++) {
+				double candidateValue = centroids[candidateOffset+dimensionId];
+				double nearestValue = centroids[nearestOffset+dimensionId];
+				double corner = candidateValue>nearestValue?nodeMax[boxOffset+dimensionId]:nodeMin[boxOffset+dimensionId];
+				double candidateDifference = corner-candidateValue;
+				double nearestDifference = corner-nearestValue;
+				double width = nodeMax[boxOffset+dimensionId]-nodeMin[boxOffset+dimensionId];
+				candidateSquareDistance+=candidateDifference*candidateDifference;
+				nearestSquareDistance+=nearestDifference*nearestDifference;
+				squareDiagonal+=width*width;
+			}
+			/**The square distances of the points of the box are at most 2*(square corner distance + square diagonal),
+			 * the margin covers their rounding errors*/
+			double margin = tieMargin*2*(candidateSquareDistance+nearestSquareDistance+2*squareDiagonal);
+			return candidateSquareDistance-nearestSquareDistance>margin;
+		}
+
+		/** All the points of the node to the cluster, using the node's aggregates*/
+		private void assignSubtree(int node, int clusterId) {
+			int boxOffset = node*dimensions;
+			int clusterOffset = clusterId*dimensions;
+			int size = nodeTo[node]-nodeFrom[node];
+			counts[clusterId]+=size;
+			/**Σ|x-c|² = Σ|x-mean|² + size*|mean-c|²*/
+			double squareDistance=0;
+			for (int dimensionId = 0; dimensionId < dimensions; dimensionId++) {
+				sums[clusterOffset+dimensionId]+=nodeSums[boxOffset+dimensionId];
+				double difference = nodeSums[boxOffset+dimensionId]/size-centroids[clusterOffset+dimensionId];
+				squareDistance+=difference*difference;
+			}
+			squareDistanceSums[clusterId]+=nodeSquareDeviations[node]+size*squareDistance;
+			if(nodeOwners[node]!=clusterId) {
+				for (int i = nodeFrom[node]; i < nodeTo[node]; i++) {
+					if(assignedClusters[order[i]]!=clusterId) {
+						assignedClusters[order[i]]=clusterId;
+						reassigned++;
+					}
+				}
+				nodeOwners[node]=clusterId;
+			}
+		}
+
+		/** Same as Lloyd's, among the candidates only*/
+		private void assignLeaf(int node, int[] current, int count) {
+			double[] values = dataset.getValues();
+			int owner=-2;
+			for (int i = nodeFrom[node]; i < nodeTo[node]; i++) {
+				int pointId = order[i];
+				int newClusterId = -1;
+				double minSquareDistance= Double.MAX_VALUE;
+				for (int c = 0; c < count; c++) {
+					double squareDistance=dataset.squareDistance(pointId, centroids, current[c]*dimensions);
+					if(squareDistance<minSquareDistance) {
+						minSquareDistance=squareDistance;
+						newClusterId=current[c];
+					}
+				}
+				if(assignedClusters[pointId]!=newClusterId) {
+					assignedClusters[pointId]=newClusterId;
+					reassigned++;
+				}
+				squareDistances[pointId]=minSquareDistance;
+				owner = owner==-2||owner==newClusterId?newClusterId:-1;
+				int clusterOffset = newClusterId*dimensions;
+				int pointOffset = dataset.offset(pointId);
+				counts[newClusterId]++;
+				for (int dimensionId = 0; dimensionId < dimensions; dimensionId++) {
+					sums[clusterOffset+dimensionId]+=values[pointOffset+dimensionId];
+				}
+				squareDistanceSums[newClusterId]+=minSquareDistance;
+			}
+			distanceCalculations+=(long)count*(nodeTo[node]-nodeFrom[node]);
+			nodeOwners[node]=owner;
+		}
+	}
+}
@@ -1,145 +1,294 @@
 package com.khetanshu.machinelearning.clustering.algos;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import com.khetanshu.machinelearning.clustering.main.ClusteringAlgorithms;
 import com.khetanshu.machinelearning.clustering.util.CONSTANTS;
+import com.khetanshu.machinelearning.clustering.util.Parallelism;
 import com.khetanshu.machinelearning.clustering.vo.ClusterVo;
+import com.khetanshu.machinelearning.clustering.vo.Dataset;
 import com.khetanshu.machinelearning.clustering.vo.Point;
 
 /**
  * This class would find the clusters using two different approaches based on the parameter passed in its constructors
  * through "linkageType" {LLYOD, KMEAN++}
  *
+ * Each iteration (assignment + update) is run in parallel: the points are split in fixed partitions, each partition
+ * assigns its points and accumulates its own cluster sums/counts, and the partitions are reduced once per iteration 
+ * always in the same order. The partitions don't depend on the parallelism level hence for a fixed seed the result 
+ * is identical whatever the # of threads.
+ *
  * DATA STRUCTURE USED:
- * 1. Hash-Map (Multi-level)
- * 2. Linked List
+ * 1. Array (row-major dataset, flattened k*d centroids, per point assignment, per partition accumulators)
+ * 2. Hash-Map (only for the output contract)
+ * 3. Linked List
+ * 4. Fork-Join Pool
  * 
  * ASYMPTOTIC COMPLEXITY(Worst case):
- * The the complexities of the algorithm are
- * Lloyd’s							: 𝑂(𝑛 ∗𝑘 ∗ 𝑑)
- * Kmean++							: 𝑂(𝑛 ∗𝑘 ∗ 𝑑 + lg⁡(𝑘))
+ * The the complexities of the algorithm are (per iteration)
+ * Lloyd’s							: 𝑂(𝑛 ∗𝑘 ∗ 𝑑 / p)
+ * Kmean++							: 𝑂(𝑛 ∗𝑘 ∗ 𝑑 / p) 		{seeding by D² sampling (see KmeansSeeding) : 𝑂(𝑛 ∗𝑘 ∗ 𝑑 / p) once}
  * 
  * 
  * where,
- * n : # of point ,  k : number of clusters,  d : number of attributes
+ * n : # of point ,  k : number of clusters,  d : number of attributes, p : parallelism
  */
 public class Kmeans {
-	private Map<Integer,Point>points;
-	private Map<Integer,Map<Integer,Double>> clusters; /**<Cluster_Id,Dimensions<Dimension_Id, Value>>*/
+	protected Dataset dataset;
+	protected int totalClusters;
+	protected int dimensions;
+	protected double[] centroids;			/**<flattened k*d matrix, centroid of the cluster "c" starts at c*d*/
+	protected int[] assignedClusters;		/**<index of the centroid (0..k-1) each point belongs to*/
+	protected double[] squareDistances;		/**<square distance of each point from its assigned centroid*/
+	protected Random random;
+	protected ForkJoinPool pool;
+	private Partition[] partitions;
+	private long distanceCalculations;		/**<# of point to centroid distances calculated by the iterations*/
+	private List<Long> distanceCalculationsPerIteration;
+	private int iterations;
+	protected double currentCost=Double.NaN;	/**<mean square distance from the centroids, as of the last update*/
+	protected double maxShift;				/**<largest distance a centroid has moved by the last update*/
+	protected long reassigned;				/**<# of points which have changed their cluster in the last iteration*/
+	private double attributeVariance=-1;	/**<mean variance of the attributes, scale of the shift tolerance*/
+	private int maxIterations;
+	private double shiftTolerance;
+	private double inertiaTolerance;
+	private volatile boolean cancelled;
+	private List<IterationListener> iterationListeners;
+
+	/**# of points per partition (and max # of partitions) of an iteration, independent of the parallelism level*/
+	private static final int PARTITION_SIZE=1024;
+	private static final int MAX_PARTITIONS=256;
+
+	/**
+	 * @return the k-means engine for the type {LLOYDS, KMEANS_PLUS_PLUS, ELKAN, HAMERLY, MINI_BATCH, KD_TREE, BISECTING};
+	 * MINI_BATCH, KD_TREE and BISECTING count the points rather than weigh them hence for a weighted dataset (e.g. a
+	 * coreset, already small) they are replaced by KMEANS_PLUS_PLUS
+	 */
+	public static Kmeans newInstance(Dataset dataset, int totalClusters, int type, long seed) {
+		if(dataset.isWeighted() && (type==CONSTANTS.MINI_BATCH || type==CONSTANTS.KD_TREE || type==CONSTANTS.BISECTING)) {
+			type=CONSTANTS.KMEANS_PLUS_PLUS;
+		}
+		switch(type) {
+		case CONSTANTS.ELKAN:
+			return new ElkanKmeans(dataset, totalClusters, seed);
+		case CONSTANTS.HAMERLY:
+			return new HamerlyKmeans(dataset, totalClusters, seed);
+		case CONSTANTS.MINI_BATCH:
+			return new MiniBatchKmeans(dataset, totalClusters, seed);
+		case CONSTANTS.KD_TREE:
+			return new KdTreeKmeans(dataset, totalClusters, seed);
+		case CONSTANTS.BISECTING:
+			return new BisectingKmeans(dataset, totalClusters, seed);
+		default:
+			return new Kmeans(dataset, totalClusters, type, seed);
+		}
+	}
+
+	/**
+	 * @return the k-means engine for the type, warm started from the given (flattened k*d) centroids i.e. with no
+	 * seeding at all; as the seeds aren't needed, KMEANS_PLUS_PLUS is run as plain LLOYDS iterations
+	 * @throws IllegalArgumentException for BISECTING (of an unweighted dataset), which builds its clusters by splitting
+	 * all the points hence can't start from given centroids
+	 */
+	public static Kmeans newInstance(Dataset dataset, int totalClusters, int type, double[] initialCentroids) {
+		if(dataset.isWeighted() && (type==CONSTANTS.MINI_BATCH || type==CONSTANTS.KD_TREE || type==CONSTANTS.BISECTING)) {
+			type=CONSTANTS.KMEANS_PLUS_PLUS;
+		}
+		switch(type) {
+		case CONSTANTS.ELKAN:
+			return new ElkanKmeans(dataset, totalClusters, 0L, initialCentroids);
+		case CONSTANTS.HAMERLY:
+			return new HamerlyKmeans(dataset, totalClusters, 0L, initialCentroids);
+		case CONSTANTS.MINI_BATCH:
+			return new MiniBatchKmeans(dataset, totalClusters, 0L, initialCentroids);
+		case CONSTANTS.KD_TREE:
+			return new KdTreeKmeans(dataset, totalClusters, 0L, initialCentroids);
+		case CONSTANTS.BISECTING:
+			throw new IllegalArgumentException("BISECTING can't be warm started, it splits all the points from scratch");
+		default:
+			return new Kmeans(dataset, totalClusters, CONSTANTS.LLOYDS, 0L, initialCentroids);
+		}
+	}
+
+	public static Kmeans newInstance(Dataset dataset, int totalClusters, int type) {
+		return newInstance(dataset, totalClusters, type, ClusteringAlgorithms.RANDOM_SEED!=null?ClusteringAlgorithms.RANDOM_SEED:System.nanoTime());
+	}
 
-	/**	@param( 	pointsMap 	= Map:<#name{1,2,3,....n}, Point:{Assigned Cluster, Map:<dimension_Id, value>}>,
+	/**	@param( 	dataset 	= row-major points {1,2,3,....n} with d attributes each,
 	 * 		  	k			= # of clusters to be found)
 	 *  Initially "Assigned Cluster" would default to -1;
 	 */
-	public Kmeans(Map<Integer,Point>points, int totalClusters,int type) {
-		clusters = new HashMap<>();
-		//Copying and counting the points
-		this.points = new HashMap<>();
-		for (Integer key : points.keySet()) {
-			Point point = new Point(points.get(key).getDimensions(), -1);
-			//			Point point = points.get(key);
-			point.setAssignedCluster(-1);
-			this.points.put(key, point);
+	public Kmeans(Dataset dataset, int totalClusters,int type) {
+		this(dataset, totalClusters, type, ClusteringAlgorithms.RANDOM_SEED!=null?ClusteringAlgorithms.RANDOM_SEED:System.nanoTime());
+	}
+
+	/** @param seed = seed of the random selection of the initial centroids i.e. same seed would lead to same clusters*/
+	public Kmeans(Dataset dataset, int totalClusters,int type, long seed) {
+		this(dataset, totalClusters, type, seed, null);
+	}
+
+	/** @param initialCentroids = flattened k*d centroids (copied) to start the iterations from, in which case no seeding
+	 * is done; null to seed them as per the type*/
+	public Kmeans(Dataset dataset, int totalClusters,int type, long seed, double[] initialCentroids) {
+		this.dataset=dataset;
+		this.random=new Random(seed);
+		this.pool=Parallelism.getPool();
+		this.totalClusters=totalClusters;
+		this.dimensions=dataset.getDimensions();
+		this.distanceCalculationsPerIteration=new ArrayList<>();
+		this.iterationListeners=new ArrayList<>();
+		this.maxIterations=ClusteringAlgorithms.KMEANS_MAX_ITERATIONS;
+		this.shiftTolerance=ClusteringAlgorithms.KMEANS_SHIFT_TOLERANCE;
+		this.inertiaTolerance=ClusteringAlgorithms.KMEANS_INERTIA_TOLERANCE;
+		centroids = new double[totalClusters*dimensions];
+		assignedClusters = new int[dataset.getSize()];
+		squareDistances = new double[dataset.getSize()];
+		for (int pointId = 0; pointId < dataset.getSize(); pointId++) {
+			assignedClusters[pointId]=-1;
+			squareDistances[pointId]=Double.MAX_VALUE;
 		}
 
-		switch(type) {
-		case CONSTANTS.LLOYDS:
-			Random random = new Random();
-			/**Random selection of initial centroids*/
-			for (int clusterId = 1; clusterId <= totalClusters; clusterId++) {
-				int randomInt = random.nextInt(points.size());
-				Point point =this.points.get(randomInt);
-				//point.setAssignedCluster(clusterId);
-				Map<Integer,Double>newClusterDimensions= new HashMap<>();
-				newClusterDimensions.putAll(point.getDimensions());
-				clusters.put(clusterId, newClusterDimensions);
-			}
-			break;
+		if(initialCentroids!=null) {
+			/**Warm start, no seeding*/
+			System.arraycopy(initialCentroids, 0, centroids, 0, centroids.length);
+		}else {
+			switch(type) {
+			case CONSTANTS.LLOYDS:
+				/**Random selection of initial centroids*/
+				for (int clusterId = 0; clusterId < totalClusters; clusterId++) {
+					int randomInt = random.nextInt(dataset.getSize());
+					dataset.copyPoint(randomInt, centroids, clusterId*dimensions);
+				}
+				break;
+
+			case CONSTANTS.KMEANS_PLUS_PLUS:
+			case CONSTANTS.ELKAN:
+			case CONSTANTS.HAMERLY:
+			case CONSTANTS.KD_TREE:
+				findInitialClusters(dataset);
+				break;
+
+			case CONSTANTS.MINI_BATCH:
+				/**Seeded by the sub-class, on a sample of the points*/
+				break;
 
-		case CONSTANTS.KMEANS_PLUS_PLUS:
-			findInitialClusters(totalClusters);
-			break;
+			case CONSTANTS.BISECTING:
+				/**The centroids come from the splits of the sub-class*/
+				break;
 
+			}
 		}
 		//System.out.println("Initial Clusters:"+clusters);
+		createPartitions();
 	}
 
 	public Map<Integer, Point> findClusters() {
-		while(reformClusters()) {
+		fit();
+		return reportClusters();
+	}
+
+	/** Iterates, without any output, until 
+	 * - no point moves any more, or
+	 * - the centroids/inertia move less than the tolerances, or the max # of iterations is reached (then the points are
+	 *   assigned once more to the last centroids), or
+	 * - it is cancelled*/
+	public void fit() {
+		double previousCost = Double.NaN;
+		while(!cancelled && reformClusters()) {
 			//			printCentroids();
 			recalculateTheCentroids();
+			for (IterationListener listener : iterationListeners) {
+				listener.iterationCompleted(iterations, currentCost*dataset.getTotalWeight(), maxShift, reassigned);
+			}
+			if(hasConverged(previousCost)) {
+				if(!cancelled) {
+					assignToFinalCentroids();
+				}
+				break;
+			}
+			previousCost=currentCost;
 			//			printClusters();
 		}
+		if(!cancelled) {
+			afterConvergence();
+		}
+	}
+
+	/** @param previousCost = cost before the last iteration (NaN after the first one)
+	 * @return true iff the iterations should stop before the points stop moving i.e. the max # of iterations is reached,
+	 * the largest shift of a centroid is within SHIFT_TOLERANCE times the (root mean) variance of the attributes, or
+	 * the relative decrease of the inertia is within INERTIA_TOLERANCE (the tolerances are off when 0)*/
+	protected boolean hasConverged(double previousCost) {
+		if(maxIterations>0 && iterations>=maxIterations) {
+			if(ClusteringAlgorithms.DEBUG_MODE) {
+				System.out.printf("Stopped at the max # of iterations (%d)\n", maxIterations);
+			}
+			return true;
+		}
+		if(shiftTolerance>0 && maxShift<=shiftTolerance*Math.sqrt(attributeVariance)) {
+			if(ClusteringAlgorithms.DEBUG_MODE) {
+				System.out.printf("Converged after %d iterations, largest shift %.3e\n", iterations, maxShift);
+			}
+			return true;
+		}
+		if(inertiaTolerance>0 && !Double.isNaN(previousCost) && previousCost-currentCost<=inertiaTolerance*previousCost) {
+			if(ClusteringAlgorithms.DEBUG_MODE) {
+				System.out.printf("Converged after %d iterations, cost %.3f -> %.3f\n", iterations, previousCost, currentCost);
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/** Assigns the points to the centroids of the last update, when the iterations are stopped before convergence*/
+	protected void assignToFinalCentroids() {
+		reformClusters();
+	}
+
+	/** Prints the clusters (as per the PRINT_* flags) found by {@link #fit()}
+	 * @return the output contract, see {@link #getPoints()}*/
+	public Map<Integer, Point> reportClusters() {
+		Map<Integer, Point> points = getPoints();
 		if(ClusteringAlgorithms.PRINT_CLUSTER_POINTS) {
 			System.out.println("Centroids:");
 			printCentroids();
-			printClusters();
+			printClusters(points);
 		}
 		if(ClusteringAlgorithms.PRINT_SILHOUETTE_SCORE)
 			printSilhouetteScores();
 		return points;
 	}
 
-	private void findInitialClusters(int totalClusters) {
-		/**Choose the FIRST cluster(centroid point) randomly among the points*/
-		Random random = new Random();
-		int randomInt = random.nextInt(points.size());
-		Point point =this.points.get(randomInt);
-		Map<Integer,Double>newClusterDimensions= new HashMap<>();
-		newClusterDimensions.putAll(point.getDimensions());
-		clusters.put(1, newClusterDimensions);
-
-		for(int i=2;i<=totalClusters;i++) {
-			Double maxDistanceFromCentroid = Double.MIN_VALUE;
-			Point newClusterPoint=null;
-			/**For each point find the distances with the clusters and select the one having maximum distance*/ 
-			for(int j=0;j<points.size();j++) {
-				if(j!=randomInt) {
-					point =this.points.get(j);
-					/**For each cluster finding  the distance from this point and would select the cluster with minimum distance*/
-					Double minDistanceFromCentroid=Double.MAX_VALUE;
-					Point pointWithMinDistanceFromCentroid=null;
-					for(Integer clusterId : clusters.keySet()) {
-						Map<Integer,Double>dimensions_A = clusters.get(clusterId);
-						Map<Integer,Double>dimensions_B = point.getDimensions();
-						/**calculate square distance from point to the cluster's centroid*/
-						Double squareDistance= calculateSquareDistance(dimensions_A, dimensions_B);
-						if(squareDistance<minDistanceFromCentroid) {
-							minDistanceFromCentroid = squareDistance;
-							pointWithMinDistanceFromCentroid=point;
-						}
-					}
-					if(minDistanceFromCentroid>maxDistanceFromCentroid) {
-						maxDistanceFromCentroid=minDistanceFromCentroid;
-						newClusterPoint=pointWithMinDistanceFromCentroid;
-					}
-				}
-			}
-			/**Selected point having maximum distance from its closets cluster*/
-			newClusterDimensions= new HashMap<>();
-			newClusterDimensions.putAll(newClusterPoint.getDimensions());
-			clusters.put(i, newClusterDimensions);
-
+	/**@return the output contract i.e. Map:<#name{0,1,2,....n-1}, Point:{Assigned Cluster{1..k}, square distance from centroid}>*/
+	public Map<Integer, Point> getPoints() {
+		Map<Integer, Point> points = new HashMap<>();
+		for (int pointId = 0; pointId < assignedClusters.length; pointId++) {
+			points.put(pointId, new Point(assignedClusters[pointId]+1, squareDistances[pointId]));
 		}
+		return points;
 	}
 
-	Double calculateSquareDistance(Map<Integer,Double>dimensions_A, Map<Integer,Double>dimensions_B) {
-		Double squareDistance=new Double(0);
-		for (Integer dimensionId : dimensions_A.keySet()) {
-			Double pointValue_A= dimensions_A.get(dimensionId);
-			Double pointValue_B = dimensions_B.get(dimensionId);
-			squareDistance += Math.pow((pointValue_A-pointValue_B),2);
+	/** Selects the initial centroids among the points of "source" (the dataset or a sample of it) by
+	 * k-means++ or k-means|| as per ClusteringAlgorithms.KMEANS_SEEDING*/
+	protected void findInitialClusters(Dataset source) {
+		KmeansSeeding seeding = new KmeansSeeding(source, random, pool);
+		if(ClusteringAlgorithms.KMEANS_SEEDING==CONSTANTS.KMEANS_PARALLEL) {
+			seeding.kmeansParallel(totalClusters, centroids, ClusteringAlgorithms.KMEANS_PARALLEL_ROUNDS);
+		}else {
+			seeding.kmeansPlusPlus(totalClusters, centroids);
 		}
-		return squareDistance;
 	}
 
-
-	private void printClusters() {
+	private void printClusters(Map<Integer, Point> points) {
 		for (Integer pointId : points.keySet()) {
 			System.out.println("Point#"+ pointId +"{"+points.get(pointId)+"}");
 		}
@@ -147,18 +296,26 @@ public class Kmeans {
 
 	private void printCentroids() {
 		System.out.println();
-		System.out.println("Centroid="+clusters);
+		StringBuilder builder = new StringBuilder("Centroid={");
+		for (int clusterId = 0; clusterId < totalClusters; clusterId++) {
+			builder.append(clusterId==0?"":", ").append(clusterId+1).append("={");
+			for (int dimensionId = 0; dimensionId < dimensions; dimensionId++) {
+				builder.append(dimensionId==0?"":", ").append(dimensionId).append('=').append(centroids[clusterId*dimensions+dimensionId]);
+			}
+			builder.append('}');
+		}
+		System.out.println(builder.append('}'));
 	}
 
 
 
+	/**@return mean (weighted, if the points are) square distance of the points from their centroids*/
 	public double calculateAggregateClusteringCost() {
 		double cost=0;
-		for (Integer pointKey : points.keySet()) {
-			Point point = points.get(pointKey);
-			cost+= Point.calculateSquareDistance(point.getDimensions(), clusters.get(point.getAssignedCluster()));
+		for (int pointId = 0; pointId < dataset.getSize(); pointId++) {
+			cost+= dataset.getWeight(pointId)*dataset.squareDistance(pointId, centroids, assignedClusters[pointId]*dimensions);
 		}
-		cost/=points.size();
+		cost/=dataset.getTotalWeight();
 		return cost;
 	}
 
@@ -168,37 +325,40 @@ public class Kmeans {
 		}
 		/**Create cluster to points map*/
 		Map<Integer, List<Integer>> clustersToPoints= new HashMap<>();
-		for (Integer pointKey : points.keySet()) {
-			Point point = points.get(pointKey);
-			List<Integer> pointsList;
-			if(clustersToPoints.containsKey(point.getAssignedCluster())) {
-				pointsList=clustersToPoints.get(point.getAssignedCluster());
-				pointsList.add(pointKey);
-			}else {
+		for (int pointId = 0; pointId < assignedClusters.length; pointId++) {
+			List<Integer> pointsList = clustersToPoints.get(assignedClusters[pointId]);
+			if(pointsList==null) {
 				pointsList= new LinkedList<>();
-				pointsList.add(pointKey);
-				clustersToPoints.put(point.getAssignedCluster(),pointsList);
+				clustersToPoints.put(assignedClusters[pointId],pointsList);
 			}
+			pointsList.add(pointId);
 		}
 
+		/**Σ of the distances of each point from the points of each cluster, by the tiled pairwise distances*/
+		Map<Integer, Integer> clusterIndexes = new HashMap<>();
+		for (Integer clusterKey : clustersToPoints.keySet()) {
+			clusterIndexes.put(clusterKey, clusterIndexes.size());
+		}
+		int[] clusterIds = new int[assignedClusters.length];
+		for (int pointId = 0; pointId < assignedClusters.length; pointId++) {
+			clusterIds[pointId]=clusterIndexes.get(assignedClusters[pointId]);
+		}
+		double[] clusterDistanceSums = PairwiseDistances.sumByCluster(dataset, clusterIds, clusterIndexes.size());
+
 		//Map<Integer, ClusterVo> silhouetteDistanceMap = new HashMap<>();
 		double averageSilhouetteScore=0.0;
 		/**Initialize silhouetteDistanceMap, and calculate in-cluster average distance*/
-		for (Integer clusterKey : clusters.keySet()) {
+		for (Integer clusterKey : clustersToPoints.keySet()) {
 			ClusterVo clusterInfo = new ClusterVo();
 			double inClusterDistance =0.0;
 			List<Integer> pointsList = clustersToPoints.get(clusterKey);
-			for (Integer pointKey : pointsList) {
-				inClusterDistance +=points.get(pointKey).getSquareDistanceFromCentroid();
+			for (int pointKey : pointsList) {
+				inClusterDistance +=squareDistances[pointKey];
 				/**calculate the out-cluster distance from this point to the points of the other clusters*/
 				for (Integer outClusterKey : clustersToPoints.keySet()) {
-					if(clusterKey!=outClusterKey) {
-						List<Integer> outClusterPointsList = clustersToPoints.get(outClusterKey);
-						double outClusterDistance =0.0;
-						for (Integer outClusterPointKey : outClusterPointsList) {
-							outClusterDistance+=Point.calculateSquareDistance(points.get(pointKey).getDimensions(), points.get(outClusterPointKey).getDimensions());
-						}
-						outClusterDistance/=outClusterPointsList.size();
+					if(!clusterKey.equals(outClusterKey)) {
+						double outClusterDistance = clusterDistanceSums[pointKey*clusterIndexes.size()+clusterIndexes.get(outClusterKey)]
+								/clustersToPoints.get(outClusterKey).size();
 						if(outClusterDistance<clusterInfo.getOutClusterMinAverageDistance()) {
 							clusterInfo.setOutClusterMinAverageDistance(outClusterDistance);
 						}
@@ -209,90 +369,373 @@ public class Kmeans {
 			double silhouetteScore = (clusterInfo.getOutClusterMinAverageDistance()-clusterInfo.getInClusterAverageDistance())/
 					Double.max(clusterInfo.getOutClusterMinAverageDistance(),clusterInfo.getInClusterAverageDistance());
 			if(ClusteringAlgorithms.DEBUG_MODE) {
-				System.out.printf("Cluster[%2d] - Silhouette Score=[%.3f]\n",clusterKey,silhouetteScore);
+				System.out.printf("Cluster[%2d] - Silhouette Score=[%.3f]\n",clusterKey+1,silhouetteScore);
 			}
 			averageSilhouetteScore +=silhouetteScore;
 			//silhouetteDistanceMap.put(clusterKey,clusterInfo);
 		}
-		System.out.printf("Average Silhouette Score=[%.3f]\n",averageSilhouetteScore/clusters.size());
+		System.out.printf("Average Silhouette Score=[%.3f]\n",averageSilhouetteScore/clustersToPoints.size());
 		//		System.out.println(averageSilhouetteScore/clusters.size());
 
 	}
 
 
-	private boolean reformClusters() {
-		boolean changeFound =false;
-		for (Integer pointID : points.keySet()) {
-			Point point = points.get(pointID);
-			if(assignNearestCluster(point)) {
-				if(changeFound==false) {
-					changeFound=true;
-				}
-			}
+	private void createPartitions() {
+		int[] bounds = calculatePartitionBounds(dataset.getSize());
+		partitions = new Partition[bounds.length-1];
+		for (int i = 0; i < partitions.length; i++) {
+			partitions[i] = new Partition(bounds[i], bounds[i+1]);
 		}
-		return changeFound;
-	}
-
-	/** @param  a point
-	 * The function would calculate the distance of the point to each clusters and assign it to the one closer to it*/
-	private boolean assignNearestCluster(Point point) {
-		boolean changeFound =false;
-		Integer newClusterId = null;
-		Double minSquareDistance= Double.MAX_VALUE;
-		for (Integer clusterId : clusters.keySet()) {
-			Map<Integer,Double>dimensions = clusters.get(clusterId);
-			Double squareDistance=new Double(0);
-			for (Integer dimensionId : dimensions.keySet()) {
-				Double centroidValue = dimensions.get(dimensionId);
-				Double pointValue = point.getDimensions().get(dimensionId);
-				squareDistance += Math.pow((centroidValue-pointValue),2);
-			}
+	}
 
-			//if(squareDistance<point.getSquareDistanceFromCentroid()) {
+	/** @return the bounds of the fixed partitions of "size" points i.e. partition "i" is [bounds[i], bounds[i+1]),
+	 * independent of the parallelism level*/
+	static int[] calculatePartitionBounds(int size) {
+		int totalPartitions = Math.max(1, Math.min(MAX_PARTITIONS, (size+PARTITION_SIZE-1)/PARTITION_SIZE));
+		int[] bounds = new int[totalPartitions+1];
+		for (int i = 0; i <= totalPartitions; i++) {
+			bounds[i] = (int)((long)size*i/totalPartitions);
+		}
+		return bounds;
+	}
+
+	/** Assigns every point to its nearest cluster, and accumulates the new cluster sums (in parallel over the partitions)
+	 * @return true iff any point has moved to another cluster 
+	 * (if none has moved the centroids would remain the same, so would all the distances)*/
+	protected boolean reformClusters() {
+		beforeReform();
+		pool.invoke(new ReformTask(0, partitions.length));
+		long iterationDistanceCalculations=0;
+		reassigned=0;
+		for (Partition partition : partitions) {
+			iterationDistanceCalculations+=partition.distanceCalculations;
+			reassigned+=partition.reassigned;
+		}
+		recordIteration(iterationDistanceCalculations);
+		return reassigned>0;
+	}
+
+	/** Counts an iteration which has calculated "iterationDistanceCalculations" point to centroid distances*/
+	protected void recordIteration(long iterationDistanceCalculations) {
+		iterations++;
+		distanceCalculations+=iterationDistanceCalculations;
+		distanceCalculationsPerIteration.add(iterationDistanceCalculations);
+		if(ClusteringAlgorithms.DEBUG_MODE) {
+			System.out.printf("Iteration#%3d : %10d distances calculated, %10d skipped\n",iterations,
+					iterationDistanceCalculations,(long)dataset.getSize()*totalClusters-iterationDistanceCalculations);
+		}
+	}
+
+	/** @param( pointId					= a point,
+	 * 			centroidSquareDistances	= buffer of k doubles of the calling partition)
+	 * The function would calculate the distance of the point to each clusters (at once, by the kernel) and assign it to
+	 * the one closer to it (on a tie the cluster with the lower index would be chosen)
+	 * @return # of point to centroid distances calculated*/
+	protected int assignNearestCluster(int pointId, double[] centroidSquareDistances) {
+		int newClusterId = -1;
+		double minSquareDistance= Double.MAX_VALUE;
+		dataset.squareDistances(pointId, centroids, totalClusters, centroidSquareDistances);
+		for (int clusterId = 0; clusterId < totalClusters; clusterId++) {
+			double squareDistance=centroidSquareDistances[clusterId];
 			if(squareDistance<minSquareDistance) {
-				//point.setSquareDistanceFromCentroid(squareDistance);
 				minSquareDistance=squareDistance;
 				newClusterId=clusterId;
 			}
 		}
-		if(minSquareDistance!=point.getSquareDistanceFromCentroid()) {
-			point.setSquareDistanceFromCentroid(minSquareDistance);
-			point.setAssignedCluster(newClusterId);
-			changeFound=true;
-		}
-		return changeFound;
-	}
-
-	private void recalculateTheCentroids(){
-		Map<Integer,Integer> clustersSize= new HashMap<>();
-		/*Initializing*/
-		for (Integer clusterId : clusters.keySet()) {
-			clustersSize.put(clusterId, 0);
-			clusters.get(clusterId).clear();
-		}
-		for(Integer pointId: points.keySet()) {
-			Point point = points.get(pointId);
-			Integer clusterId =point.getAssignedCluster();
-			Map<Integer, Double> pointDimensions = point.getDimensions();
-			Map<Integer, Double> centroidDimensions = clusters.get(clusterId);
-			/*Increment the cluster count*/
-			clustersSize.put(clusterId, clustersSize.get(clusterId)+1);
-			for (Integer dimensionID : pointDimensions.keySet()) {
-				if(centroidDimensions.containsKey(dimensionID)) {
-					centroidDimensions.put(dimensionID,centroidDimensions.get(dimensionID)+pointDimensions.get(dimensionID));
-				}else {
-					centroidDimensions.put(dimensionID,pointDimensions.get(dimensionID));
+		squareDistances[pointId]=minSquareDistance;
+		assignedClusters[pointId]=newClusterId;
+		return totalClusters;
+	}
+
+	/** Calculates the (euclidean, not squared) distances between all the centroids into the k*k "centroidDistances"
+	 * (may be null) and half of the distance of each centroid from its nearest other centroid into "halfMinDistances"*/
+	protected void calculateCentroidDistances(double[] centroidDistances, double[] halfMinDistances) {
+		Arrays.fill(halfMinDistances, Double.MAX_VALUE);
+		for (int clusterA = 0; clusterA < totalClusters; clusterA++) {
+			for (int clusterB = clusterA+1; clusterB < totalClusters; clusterB++) {
+				double distance = Math.sqrt(squareDistance(centroids, clusterA*dimensions, centroids, clusterB*dimensions));
+				if(centroidDistances!=null) {
+					centroidDistances[clusterA*totalClusters+clusterB]=distance;
+					centroidDistances[clusterB*totalClusters+clusterA]=distance;
 				}
+				if(distance/2<halfMinDistances[clusterA])
+					halfMinDistances[clusterA]=distance/2;
+				if(distance/2<halfMinDistances[clusterB])
+					halfMinDistances[clusterB]=distance/2;
 			}
 		}
-		/*For each cluster calculate the average*/
-		for (Integer clusterId : clusters.keySet()) {
-			Map<Integer, Double> centroidDimensions = clusters.get(clusterId);
-			for (Integer dimensionId : centroidDimensions.keySet()) {
-				centroidDimensions.put(dimensionId, centroidDimensions.get(dimensionId)/clustersSize.get(clusterId));
+	}
+
+	/** Calculates the (euclidean) distance each centroid has moved from "previousCentroids" into "shifts"*/
+	protected void calculateShifts(double[] previousCentroids, double[] shifts) {
+		for (int clusterId = 0; clusterId < totalClusters; clusterId++) {
+			shifts[clusterId]=Math.sqrt(squareDistance(previousCentroids, clusterId*dimensions, centroids, clusterId*dimensions));
+		}
+	}
+
+	/** Recalculates the exact distance of each point from its assigned centroid (for the engines which only keep bounds)*/
+	protected void recalculateSquareDistances() {
+		for (int pointId = 0; pointId < dataset.getSize(); pointId++) {
+			squareDistances[pointId]=dataset.squareDistance(pointId, centroids, assignedClusters[pointId]*dimensions);
+		}
+	}
+
+	protected double squareDistance(double[] vectorA, int offsetA, double[] vectorB, int offsetB) {
+		return dataset.getKernel().squareDistance(vectorA, offsetA, vectorB, offsetB, dimensions);
+	}
+
+	/**Hook called before each assignment pass e.g. to prepare the centroid to centroid distances*/
+	protected void beforeReform() {
+	}
+
+	/**Hook called once the centroids have been recalculated, with the centroids of the previous iteration*/
+	protected void afterCentroidsMoved(double[] previousCentroids) {
+	}
+
+	/**Hook called once no point moves any more e.g. to make the "squareDistances" exact*/
+	protected void afterConvergence() {
+	}
+
+	/** Reduces the partitions' sums/counts (always in the same order so that the result is deterministic)
+	 * and calculates the new centroids*/
+	protected void recalculateTheCentroids(){
+		double[] clusterWeights= new double[totalClusters];
+		double[] sums = new double[centroids.length];
+		double[] squareDistanceSums = new double[totalClusters];
+		for (Partition partition : partitions) {
+			for (int clusterId = 0; clusterId < totalClusters; clusterId++) {
+				clusterWeights[clusterId]+=partition.weights[clusterId];
+				squareDistanceSums[clusterId]+=partition.squareDistanceSums[clusterId];
+			}
+			for (int i = 0; i < sums.length; i++) {
+				sums[i]+=partition.sums[i];
 			}
 		}
+		updateCentroids(clusterWeights, sums, squareDistanceSums);
+	}
+
+	/** Calculates the new centroids from the per cluster weights (# of points if unweighted), weighted sums (k*d) and
+	 * weighted sums of the square distances of the points from the centroid they were assigned to (i.e. before the
+	 * update), and the cost, shift etc. of the update*/
+	protected void updateCentroids(double[] clusterWeights, double[] sums, double[] squareDistanceSums) {
+		double[] previousCentroids = centroids.clone();
+		/*For each cluster calculate the average; an empty cluster would keep its previous centroid.
+		 *The cost of a cluster around its mean is Σw|x-c|² - W|mean-c|², c being its previous centroid, i.e. no extra pass
+		 *over the points, and no cancellation (unlike Σ|x|² - |Σx|²/W) when the points are far from the origin*/
+		double cost=0;
+		for (int clusterId = 0; clusterId < totalClusters; clusterId++) {
+			if(clusterWeights[clusterId]==0)
+				continue;
+			double squareShift=0;
+			for (int dimensionId = 0; dimensionId < dimensions; dimensionId++) {
+				int index = clusterId*dimensions+dimensionId;
+				centroids[index]= sums[index]/clusterWeights[clusterId];
+				double shift = centroids[index]-previousCentroids[index];
+				squareShift+=shift*shift;
+			}
+			cost+=Math.max(0, squareDistanceSums[clusterId]-clusterWeights[clusterId]*squareShift);
+		}
+		currentCost=cost/dataset.getTotalWeight();
+		if(attributeVariance<0) {
+			attributeVariance=calculateAttributeVariance(clusterWeights, sums, cost);
+		}
+		maxShift=0;
+		for (int clusterId = 0; clusterId < totalClusters; clusterId++) {
+			maxShift=Math.max(maxShift, Math.sqrt(squareDistance(previousCentroids, clusterId*dimensions, centroids, clusterId*dimensions)));
+		}
+		afterCentroidsMoved(previousCentroids);
+	}
+
+	/** @return mean variance of the attributes i.e. Σw|x-M|²/(W*d), M being the mean of all the points and W their total
+	 * weight, as the cost around the (new) centroids plus the spread of the centroids around M (law of total variance)
+	 * @param( 	clusterWeights, clusterSums	= per cluster weights and (weighted) sums of all the points,
+	 * 			cost						= Σw|x-c|², c being the new centroid of the point)*/
+	protected double calculateAttributeVariance(double[] clusterWeights, double[] clusterSums, double cost) {
+		double totalWeight = dataset.getTotalWeight();
+		double spread=0;
+		for (int dimensionId = 0; dimensionId < dimensions; dimensionId++) {
+			double sum=0;
+			for (int clusterId = 0; clusterId < totalClusters; clusterId++) {
+				sum+=clusterSums[clusterId*dimensions+dimensionId];
+			}
+			double mean = sum/totalWeight;
+			for (int clusterId = 0; clusterId < totalClusters; clusterId++) {
+				if(clusterWeights[clusterId]==0)
+					continue;
+				double difference = centroids[clusterId*dimensions+dimensionId]-mean;
+				spread+=clusterWeights[clusterId]*difference*difference;
+			}
+		}
+		return (cost+spread)/(totalWeight*Math.max(1, dimensions));
+	}
+
+	/**Contiguous range of points with its own accumulators of the cluster (weighted) sums and weights*/
+	private class Partition {
+		private final int fromPoint;
+		private final int toPoint;
+		private final double[] sums;		/**<per cluster, Σw*x of its points*/
+		private final double[] weights;		/**<per cluster, Σw of its points (# of points if unweighted)*/
+		private final double[] squareDistanceSums;	/**<per cluster, Σw*|x-c|² of its points, c being its centroid (before the update)*/
+		private final double[] centroidSquareDistances;	/**<buffer of the distances of a point from all the centroids*/
+		private long reassigned;
+		private long distanceCalculations;
+
+		Partition(int fromPoint, int toPoint) {
+			this.fromPoint=fromPoint;
+			this.toPoint=toPoint;
+			sums=new double[centroids.length];
+			weights=new double[totalClusters];
+			squareDistanceSums=new double[totalClusters];
+			centroidSquareDistances=new double[totalClusters];
+		}
+
+		void reform() {
+			Arrays.fill(sums, 0.0);
+			Arrays.fill(weights, 0.0);
+			Arrays.fill(squareDistanceSums, 0.0);
+			reassigned=0;
+			distanceCalculations=0;
+			double[] values = dataset.getValues();
+			for (int pointId = fromPoint; pointId < toPoint; pointId++) {
+				int previousClusterId = assignedClusters[pointId];
+				distanceCalculations+=assignNearestCluster(pointId, centroidSquareDistances);
+				int clusterId = assignedClusters[pointId];
+				if(clusterId!=previousClusterId) {
+					reassigned++;
+				}
+				int clusterOffset = clusterId*dimensions;
+				int pointOffset = dataset.offset(pointId);
+				double weight = dataset.getWeight(pointId);
+				weights[clusterId]+=weight;
+				/**Exact distance from the centroid (the engines with bounds may not have calculated it)*/
+				double squareDistance=0;
+				for (int dimensionId = 0; dimensionId < dimensions; dimensionId++) {
+					double value = values[pointOffset+dimensionId];
+					sums[clusterOffset+dimensionId]+=weight*value;
+					double difference = value-centroids[clusterOffset+dimensionId];
+					squareDistance+=difference*difference;
+				}
+				squareDistanceSums[clusterId]+=weight*squareDistance;
+			}
+		}
+	}
+
+	/**Splits the partitions among the workers of the pool*/
+	private class ReformTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private final int fromPartition;
+		private final int toPartition;
+
+		ReformTask(int fromPartition, int toPartition) {
+			this.fromPartition=fromPartition;
+			this.toPartition=toPartition;
+		}
+
+		@Override
+		protected void compute() {
+			if(toPartition-fromPartition==1) {
+				partitions[fromPartition].reform();
+				return;
+			}
+			int middle = (fromPartition+toPartition)>>>1;
+			invokeAll(new ReformTask(fromPartition, middle), new ReformTask(middle, toPartition));
+		}
 	}
 	/*Encapsulation Procedures*/
 
+	public Dataset getDataset() {
+		return dataset;
+	}
+
+	public int getTotalClusters() {
+		return totalClusters;
+	}
+
+	/**@return the trained model (a copy of the current centroids) to predict the cluster of new points; if the points
+	 * are weighted (e.g. a coreset) the sizes are the rounded weights and the inertia is weighted too, i.e. both are 
+	 * estimates for the points the weights stand for*/
+	public KmeansModel getModel() {
+		long[] clusterSizes = new long[totalClusters];
+		double[] clusterWeights = new double[totalClusters];
+		double inertia=0;
+		for (int pointId = 0; pointId < assignedClusters.length; pointId++) {
+			if(assignedClusters[pointId]<0)
+				continue;
+			double weight = dataset.getWeight(pointId);
+			clusterWeights[assignedClusters[pointId]]+=weight;
+			inertia+=weight*dataset.squareDistance(pointId, centroids, assignedClusters[pointId]*dimensions);
+		}
+		for (int clusterId = 0; clusterId < totalClusters; clusterId++) {
+			clusterSizes[clusterId]=Math.round(clusterWeights[clusterId]);
+		}
+		return new KmeansModel(centroids, clusterSizes, inertia, dataset.getSize(), totalClusters, dimensions, dataset.getKernel());
+	}
+
+	/**Starts the iterations from the given (flattened k*d) centroids e.g. of a saved model, instead of the seeded ones;
+	 * to be called before {@link #fit()}*/
+	public void setInitialCentroids(double[] initialCentroids) {
+		System.arraycopy(initialCentroids, 0, centroids, 0, centroids.length);
+	}
+
+	/**@return flattened k*d centroids (cluster "c+1" of the output starts at c*d)*/
+	public double[] getCentroids() {
+		return centroids;
+	}
+
+	public int[] getAssignedClusters() {
+		return assignedClusters;
+	}
+
+	/**@return # of point to centroid distances calculated by all the iterations so far*/
+	public long getDistanceCalculations() {
+		return distanceCalculations;
+	}
+
+	public int getIterations() {
+		return iterations;
+	}
+
+	/**@return the mean square distance of the points from their centroids as of the last update of the centroids
+	 * (NaN before the first one), i.e. of the points as they were assigned before that update; it never increases from
+	 * one iteration to the next. Calculated from the per cluster sums, hence equal to
+	 * {@link #calculateAggregateClusteringCost()} (once converged) up to the rounding only*/
+	public double getCurrentCost() {
+		return currentCost;
+	}
+
+	/**Stops the iterations (at the end of the current one) e.g. once the result isn't needed any more*/
+	public void cancel() {
+		cancelled=true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**@param iterationListener = called after each update of the centroids (from the thread running the iterations)*/
+	public void addIterationListener(IterationListener iterationListener) {
+		iterationListeners.add(iterationListener);
+	}
+
+	/**@return max # of iterations (0 = until no point moves any more)*/
+	public int getMaxIterations() {
+		return maxIterations;
+	}
+
+	/**@param maxIterations = max # of iterations (0 = until no point moves any more)*/
+	public void setMaxIterations(int maxIterations) {
+		this.maxIterations=maxIterations;
+	}
+
+	/**@param( 	shiftTolerance		= stop once no centroid moves more than this times the (root mean) variance of the attributes,
+	 * 			inertiaTolerance	= stop once the inertia decreases by less than this fraction; 0 disables either)*/
+	public void setTolerances(double shiftTolerance, double inertiaTolerance) {
+		this.shiftTolerance=shiftTolerance;
+		this.inertiaTolerance=inertiaTolerance;
+	}
+
+	/**@return # of point to centroid distances calculated by each iteration (the skipped ones are n*k minus these)*/
+	public List<Long> getDistanceCalculationsPerIteration() {
+		return distanceCalculationsPerIteration;
+	}
 }
@@ -0,0 +1,212 @@
+package com.khetanshu.machinelearning.clustering.algos;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import com.khetanshu.corelib.CSVReader;
+import com.khetanshu.machinelearning.clustering.main.ClusteringAlgorithms;
+import com.khetanshu.machinelearning.clustering.util.Parallelism;
+import com.khetanshu.machinelearning.clustering.vo.Dataset;
+
+/**
+ * Builds a coreset for k-means i.e. a small weighted set of points whose (weighted) k-means cost approximates the
+ * cost of the whole dataset for any k centroids, so that k-means can be fitted on the coreset instead of on millions
+ * of points.
+ *
+ * 1. Reduce, by "lightweight" sensitivity sampling (Bachem et al.): m points are sampled (with replacement) with the
+ *    probability q(x) = 1/2 * w(x)/Σw + 1/2 * w(x)*d(x,μ)²/Σ w*d(x,μ)², μ being the (weighted) mean, and the point
+ *    gets the weight w(x)/(m*q(x)) per draw; i.e. far away points, which could be clusters of their own, are kept
+ *    more likely but weigh less. A point drawn several times is kept once with the sum of the weights.
+ * 2. Merge-and-reduce, for the inputs which don't fit in memory: each chunk of the stream is reduced to m points
+ *    and the coresets are merged like a binary counter, i.e. the level "l" holds (at most) one coreset standing for
+ *    2^l chunks, two of them are merged and reduced into the next level. The streamed file is read once, holding only
+ *    one chunk and O(m*lg(chunks)) coreset points.
+ *
+ * The draws come from the given seed (in the order of the reductions) and the sums are calculated in fixed partitions
+ * reduced in order, so the same seed gives the same coreset whatever the parallelism level.
+ *
+ * DATA STRUCTURE USED:
+ * 1. Array (row-major coreset points and their weights)
+ * 2. List (one coreset per level of merge-and-reduce)
+ * 3. Fork-Join Pool
+ *
+ * ASYMPTOTIC COMPLEXITY(Worst case):
+ * Reduce			: O(n*d / p + m*lg(m))
+ * Merge-and-reduce	: O(n*d / p + (n/c)*m*(d+lg(m)))
+ *
+ * where,
+ * n : # of point ,  d : number of attributes, m : size of the coreset, c : # of points of a chunk, p : parallelism
+ */
+public class KmeansCoreset {
+	private final int coresetSize;
+	private final Random random;
+	private final List<Dataset> levels;	/**<coreset of the level "l" (standing for 2^l chunks) or null*/
+
+	public KmeansCoreset(int coresetSize) {
+		this(coresetSize, ClusteringAlgorithms.RANDOM_SEED!=null?ClusteringAlgorithms.RANDOM_SEED:System.nanoTime());
+	}
+
+	/** @param( 	coresetSize	= max # of points of the coreset (m),
+	 * 			seed		= seed of the draws i.e. same seed would lead to same coreset)*/
+	public KmeansCoreset(int coresetSize, long seed) {
+		if(coresetSize<1) {
+			throw new IllegalArgumentException("Coreset size must be positive : "+coresetSize);
+		}
+		this.coresetSize=coresetSize;
+		this.random=new Random(seed);
+		this.levels=new ArrayList<>();
+	}
+
+	/** Streams the csv file (one chunk at a time, see {@link CSVReader#streamCSV}) into a coreset
+	 * @param labelColumn = index of the column holding the predefined class {LAST_COLUMN, NO_LABEL_COLUMN or 0..c-1}
+	 * @return the coreset of the whole file*/
+	public static Dataset build(String csvFilePath, int labelColumn, int coresetSize, long seed) throws IOException {
+		KmeansCoreset coreset = new KmeansCoreset(coresetSize, seed);
+		CSVReader.streamCSV(csvFilePath, labelColumn, (rows, dimensions, values, labels) ->
+				coreset.add(new Dataset(rows, dimensions, values, labels)));
+		Dataset result = coreset.getCoreset();
+		if(result==null) {
+			throw new IOException(csvFilePath+" has no rows");
+		}
+		return result;
+	}
+
+	/** Merge-and-reduce step: adds the points of the next chunk of the stream (reduced first if larger than m)*/
+	public void add(Dataset chunk) {
+		if(chunk.getSize()==0) {
+			return;
+		}
+		Dataset carry = chunk.getSize()>coresetSize?reduce(chunk):chunk;
+		int level=0;
+		while(level<levels.size() && levels.get(level)!=null) {
+			carry=reduce(merge(levels.get(level), carry));
+			levels.set(level, null);
+			level++;
+		}
+		if(level==levels.size()) {
+			levels.add(carry);
+		}else {
+			levels.set(level, carry);
+		}
+	}
+
+	/** @return the coreset (at most m weighted points) of all the points added so far, null if none was*/
+	public Dataset getCoreset() {
+		Dataset coreset=null;
+		for (Dataset level : levels) {
+			if(level!=null) {
+				coreset = coreset==null?level:merge(coreset, level);
+			}
+		}
+		return coreset==null || coreset.getSize()<=coresetSize?coreset:reduce(coreset);
+	}
+
+	/** @return the coreset of the dataset by one sensitivity sampling (see the class doc); the dataset itself if it
+	 * has no more than m points*/
+	public Dataset reduce(Dataset dataset) {
+		int size = dataset.getSize();
+		int dimensions = dataset.getDimensions();
+		if(size<=coresetSize) {
+			return dataset;
+		}
+		int[] bounds = Kmeans.calculatePartitionBounds(size);
+		int partitions = bounds.length-1;
+
+		/**Weighted mean*/
+		double[][] partitionSums = new double[partitions][dimensions];
+		Parallelism.getPool().submit(() -> IntStream.range(0, partitions).parallel().forEach(partition -> {
+			for (int pointId = bounds[partition]; pointId < bounds[partition+1]; pointId++) {
+				double weight = dataset.getWeight(pointId);
+				for (int dimensionId = 0; dimensionId < dimensions; dimensionId++) {
+					partitionSums[partition][dimensionId]+=weight*dataset.getValue(pointId, dimensionId);
+				}
+			}
+		})).join();
+		double[] mean = new double[dimensions];
+		for (int partition = 0; partition < partitions; partition++) {
+			for (int dimensionId = 0; dimensionId < dimensions; dimensionId++) {
+				mean[dimensionId]+=partitionSums[partition][dimensionId];
+			}
+		}
+		double totalWeight = dataset.getTotalWeight();
+		for (int dimensionId = 0; dimensionId < dimensions; dimensionId++) {
+			mean[dimensionId]/=totalWeight;
+		}
+
+		/**Weighted square distance of each point from the mean*/
+		double[] squareDistances = new double[size];
+		double[] partitionCosts = new double[partitions];
+		Parallelism.getPool().submit(() -> IntStream.range(0, partitions).parallel().forEach(partition -> {
+			double cost=0;
+			for (int pointId = bounds[partition]; pointId < bounds[partition+1]; pointId++) {
+				squareDistances[pointId]=dataset.getWeight(pointId)*dataset.squareDistance(pointId, mean, 0);
+				cost+=squareDistances[pointId];
+			}
+			partitionCosts[partition]=cost;
+		})).join();
+		double totalCost=0;
+		for (double partitionCost : partitionCosts) {
+			totalCost+=partitionCost;
+		}
+
+		/**m draws by sorted uniforms swept along the cumulative probabilities (one pass over the points)*/
+		double[] draws = new double[coresetSize];
+		for (int i = 0; i < coresetSize; i++) {
+			draws[i]=random.nextDouble();
+		}
+		Arrays.sort(draws);
+		double[] values = new double[coresetSize*dimensions];
+		int[] labels = new int[coresetSize];
+		double[] weights = new double[coresetSize];
+		int selected=0;
+		int draw=0;
+		double cumulative=0;
+		for (int pointId = 0; pointId < size && draw < coresetSize; pointId++) {
+			double uniform = dataset.getWeight(pointId)/totalWeight;
+			double probability = 0.5*uniform+0.5*(totalCost>0?squareDistances[pointId]/totalCost:uniform);
+			cumulative+=probability;
+			int drawn=0;
+			while(draw<coresetSize && (draws[draw]<cumulative || pointId==size-1)) {
+				drawn++;
+				draw++;
+			}
+			if(drawn>0 && probability>0) {
+				dataset.copyPoint(pointId, values, selected*dimensions);
+				labels[selected]=dataset.getLabel(pointId);
+				weights[selected]=drawn*dataset.getWeight(pointId)/(coresetSize*probability);
+				selected++;
+			}
+		}
+		return new Dataset(selected, dimensions, Arrays.copyOf(values, selected*dimensions), Arrays.copyOf(labels, selected),
+				Arrays.copyOf(weights, selected));
+	}
+
+	/** @return the union of the two weighted point sets*/
+	private static Dataset merge(Dataset first, Dataset second) {
+		int dimensions = first.getDimensions();
+		if(second.getDimensions()!=dimensions) {
+			throw new IllegalArgumentException("Can't merge points of "+dimensions+" and "+second.getDimensions()+" attributes");
+		}
+		int size = first.getSize()+second.getSize();
+		double[] values = Arrays.copyOf(first.getValues(), size*dimensions);
+		System.arraycopy(second.getValues(), 0, values, first.getSize()*dimensions, second.getSize()*dimensions);
+		int[] labels = Arrays.copyOf(first.getLabels(), size);
+		System.arraycopy(second.getLabels(), 0, labels, first.getSize(), second.getSize());
+		double[] weights = new double[size];
+		for (int pointId = 0; pointId < first.getSize(); pointId++) {
+			weights[pointId]=first.getWeight(pointId);
+		}
+		for (int pointId = 0; pointId < second.getSize(); pointId++) {
+			weights[first.getSize()+pointId]=second.getWeight(pointId);
+		}
+		return new Dataset(size, dimensions, values, labels, weights);
+	}
+
+	public int getCoresetSize() {
+		return coresetSize;
+	}
+}
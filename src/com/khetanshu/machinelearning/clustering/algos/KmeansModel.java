@@ -0,0 +1,232 @@
+package com.khetanshu.machinelearning.clustering.algos;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.khetanshu.corelib.DistanceKernel;
+import com.khetanshu.corelib.DistanceKernels;
+import com.khetanshu.machinelearning.clustering.util.Parallelism;
+import com.khetanshu.machinelearning.clustering.vo.Dataset;
+
+/**
+ * Trained k-means model i.e. the k centroids found by {@link Kmeans#fit()}, to assign new points to their nearest
+ * centroid without clustering again. The cluster ids are the same as the output of the clustering {1..k}, and a tie
+ * goes to the lower id (same as the k-means iterations, so the training points are predicted in their own cluster).
+ *
+ * The model is immutable hence a single point can be predicted by any # of threads at once. A batch is predicted in
+ * parallel by tasks created once per model and reused (i.e. nothing is allocated per call); batches smaller than a
+ * partition are predicted in the caller's thread.
+ *
+ * DATA STRUCTURE USED:
+ * 1. Array (flattened k*d centroids)
+ * 2. Fork-Join Pool
+ *
+ * ASYMPTOTIC COMPLEXITY(Worst case):
+ * Single point	: O(k*d)
+ * Batch		: O(m*k*d / p)
+ *
+ * where,
+ * k : number of clusters,  d : number of attributes, m : # of points to predict, p : parallelism
+ */
+public class KmeansModel {
+	/**Min # of points per parallel task of a batch*/
+	private static final int MIN_BATCH_PARTITION=1024;
+
+	private final double[] centroids;
+	private final long[] clusterSizes;
+	private final double inertia;
+	private final long trainedRows;
+	private final int totalClusters;
+	private final int dimensions;
+	private final DistanceKernel kernel;
+	private final ForkJoinPool pool;
+	private final BatchTask[] batchTasks;
+	private final BatchTask rootTask;
+
+	/** @param( 	centroids		= flattened k*d centroids (copied),
+	 * 			clusterSizes	= # of (training) points of each cluster, indexed from 0, i.e. their total weight if weighted,
+	 * 			inertia			= sum of the square distances of the training points from their centroids,
+	 * 			trainedRows		= # of rows of the dataset trained on, i.e. the first row still to be ingested incrementally)*/
+	public KmeansModel(double[] centroids, long[] clusterSizes, double inertia, long trainedRows, int totalClusters, int dimensions) {
+		this(centroids, clusterSizes, inertia, trainedRows, totalClusters, dimensions, DistanceKernels.getInstance());
+	}
+
+	public KmeansModel(double[] centroids, long[] clusterSizes, double inertia, long trainedRows, int totalClusters, int dimensions,
+			DistanceKernel kernel) {
+		this.centroids=centroids.clone();
+		this.clusterSizes=clusterSizes.clone();
+		this.inertia=inertia;
+		this.trainedRows=trainedRows;
+		this.totalClusters=totalClusters;
+		this.dimensions=dimensions;
+		this.kernel=kernel;
+		this.pool=Parallelism.getPool();
+		this.batchTasks=new BatchTask[Math.max(1, pool.getParallelism()*4)];
+		for (int i = 0; i < batchTasks.length; i++) {
+			batchTasks[i]=new BatchTask();
+		}
+		this.rootTask=new BatchTask();
+	}
+
+	/** @return the cluster {1..k} nearest to the point (d values of "values" starting at "offset")
+	 * @throws IllegalArgumentException if "values" doesn't have d values from "offset"*/
+	public int predict(double[] values, int offset) {
+		if(offset<0 || (long)offset+dimensions>values.length) {
+			throw new IllegalArgumentException("The model has "+dimensions+" attributes but the point at the offset "+offset
+					+" has "+Math.max(0, values.length-offset));
+		}
+		return nearestCluster(values, offset);
+	}
+
+	/** @throws IllegalArgumentException if the point doesn't have d values*/
+	public int predict(double[] point) {
+		if(point.length!=dimensions) {
+			throw new IllegalArgumentException("The model has "+dimensions+" attributes but the point has "+point.length);
+		}
+		return nearestCluster(point, 0);
+	}
+
+	/**Unchecked, the callers check the bounds once*/
+	private int nearestCluster(double[] values, int offset) {
+		int nearestCluster=0;
+		double minSquareDistance=Double.MAX_VALUE;
+		for (int clusterId = 0; clusterId < totalClusters; clusterId++) {
+			double squareDistance = kernel.squareDistance(values, offset, centroids, clusterId*dimensions, dimensions);
+			if(squareDistance<minSquareDistance) {
+				minSquareDistance=squareDistance;
+				nearestCluster=clusterId;
+			}
+		}
+		return nearestCluster+1;
+	}
+
+	/** Predicts the cluster {1..k} of each point of the dataset into "clusters" (of at least n elements)
+	 * @throws IllegalArgumentException if the dataset doesn't have the d attributes of the model*/
+	public void predict(Dataset points, int[] clusters) {
+		if(points.getDimensions()!=dimensions) {
+			throw new IllegalArgumentException("The model has "+dimensions+" attributes but the dataset has "+points.getDimensions());
+		}
+		predict(points.getValues(), points.getSize(), clusters);
+	}
+
+	/** Predicts the cluster {1..k} of each of the "size" points of the row-major "values" into "clusters"
+	 * @throws IllegalArgumentException if "values" doesn't hold "size" points of d values, or "clusters" has less than
+	 * "size" elements*/
+	public void predict(double[] values, int size, int[] clusters) {
+		if(size<0 || (long)size*dimensions>values.length) {
+			throw new IllegalArgumentException("The model has "+dimensions+" attributes but "+values.length
+					+" values don't hold "+size+" points");
+		}
+		if(clusters.length<size) {
+			throw new IllegalArgumentException("Only "+clusters.length+" clusters for the "+size+" points");
+		}
+		if(size<=MIN_BATCH_PARTITION) {
+			predictRange(values, 0, size, clusters);
+			return;
+		}
+		predictInParallel(values, size, clusters);
+	}
+
+	/**The reusable tasks are shared, hence one parallel batch at a time per model*/
+	private synchronized void predictInParallel(double[] values, int size, int[] clusters) {
+		int totalTasks = (int)Math.min(batchTasks.length, (size+MIN_BATCH_PARTITION-1L)/MIN_BATCH_PARTITION);
+		for (int i = 0; i < totalTasks; i++) {
+			batchTasks[i].reinitialize();
+			batchTasks[i].set(values, (int)((long)size*i/totalTasks), (int)((long)size*(i+1)/totalTasks), clusters, 0);
+		}
+		rootTask.reinitialize();
+		rootTask.set(values, 0, 0, clusters, totalTasks);
+		pool.invoke(rootTask);
+	}
+
+	private void predictRange(double[] values, int fromPoint, int toPoint, int[] clusters) {
+		for (int pointId = fromPoint; pointId < toPoint; pointId++) {
+			clusters[pointId]=nearestCluster(values, pointId*dimensions);
+		}
+	}
+
+	/** A range of points of the batch, or (the root) all the first "totalTasks" ranges*/
+	private class BatchTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		private double[] values;
+		private int fromPoint;
+		private int toPoint;
+		private int[] clusters;
+		private int totalTasks;
+
+		void set(double[] values, int fromPoint, int toPoint, int[] clusters, int totalTasks) {
+			this.values=values;
+			this.fromPoint=fromPoint;
+			this.toPoint=toPoint;
+			this.clusters=clusters;
+			this.totalTasks=totalTasks;
+		}
+
+		@Override
+		protected void compute() {
+			if(totalTasks>0) {
+				for (int i = 1; i < totalTasks; i++) {
+					batchTasks[i].fork();
+				}
+				batchTasks[0].invoke();
+				for (int i = 1; i < totalTasks; i++) {
+					batchTasks[i].join();
+				}
+			}else {
+				predictRange(values, fromPoint, toPoint, clusters);
+			}
+			values=null;
+			clusters=null;
+		}
+	}
+
+	/** @return copy of the flattened k*d centroids (cluster "c" starts at (c-1)*d)*/
+	public double[] getCentroids() {
+		return centroids.clone();
+	}
+
+	/** @return copy of the centroid of the cluster {1..k}*/
+	public double[] getCentroid(int cluster) {
+		double[] centroid = new double[dimensions];
+		System.arraycopy(centroids, (cluster-1)*dimensions, centroid, 0, dimensions);
+		return centroid;
+	}
+
+	/** @return # of training points of the cluster {1..k}*/
+	public long getClusterSize(int cluster) {
+		return clusterSizes[cluster-1];
+	}
+
+	/** @return copy of the # of training points of each cluster (cluster "c" at c-1)*/
+	public long[] getClusterSizes() {
+		return clusterSizes.clone();
+	}
+
+	/** @return # of training points, i.e. their total weight (rounded per cluster) if weighted e.g. a coreset; see
+	 * {@link #getTrainedRows()} for the # of rows*/
+	public long getTotalPoints() {
+		long totalPoints=0;
+		for (long clusterSize : clusterSizes) {
+			totalPoints+=clusterSize;
+		}
+		return totalPoints;
+	}
+
+	/** @return # of rows of the dataset the model was trained on (or updated with)*/
+	public long getTrainedRows() {
+		return trainedRows;
+	}
+
+	/** @return sum of the square distances of the training points from their centroids*/
+	public double getInertia() {
+		return inertia;
+	}
+
+	public int getTotalClusters() {
+		return totalClusters;
+	}
+
+	public int getDimensions() {
+		return dimensions;
+	}
+}
@@ -0,0 +1,129 @@
+package com.khetanshu.machinelearning.clustering.algos;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import com.khetanshu.machinelearning.clustering.main.ClusteringAlgorithms;
+import com.khetanshu.machinelearning.clustering.util.Parallelism;
+import com.khetanshu.machinelearning.clustering.vo.Dataset;
+import com.khetanshu.machinelearning.clustering.vo.Point;
+
+/**
+ * Runs R independent k-means (any engine) from R different seeds concurrently over the same read-only dataset and
+ * keeps the one with the lowest aggregate clustering cost (ties go to the earlier restart), i.e. the "n_init" of
+ * k-means instead of running the whole program several times.
+ *
+ * The (full data) cost of a run never increases from one iteration to the next, so a run whose current cost is still
+ * more than "cancelRatio" times the cost of the best finished run (after a few iterations) is cancelled as it would
+ * hardly catch up. Mini-batch runs are never cancelled: their current cost is only estimated on the latest batch, it
+ * goes up and down with the batches and a good run could be cancelled on a noisy one. The restart seeds are derived
+ * from the given seed, hence the result is reproducible as long as the best run isn't cancelled (cancelRatio <= 0
+ * disables the cancellation).
+ *
+ * DATA STRUCTURE USED:
+ * 1. Array (one k-means per restart)
+ * 2. Fork-Join Pool (shared by the restarts and by their own parallel iterations)
+ *
+ * ASYMPTOTIC COMPLEXITY(Worst case):
+ * O(R * cost of one k-means / p), memory O(R * memory of one k-means)
+ *
+ * where,
+ * R : # of restarts, p : parallelism
+ */
+public class KmeansRestarts {
+	/**# of iterations a run is given before it could be cancelled*/
+	private static final int MIN_ITERATIONS_BEFORE_CANCEL=3;
+
+	private final Dataset dataset;
+	private final int totalClusters;
+	private final int type;
+	private final long[] seeds;
+	private final double cancelRatio;
+	private final Kmeans[] runs;
+	private double bestFinishedCost=Double.MAX_VALUE;
+
+	public KmeansRestarts(Dataset dataset, int totalClusters, int type, int restarts) {
+		this(dataset, totalClusters, type, restarts, ClusteringAlgorithms.RANDOM_SEED!=null?ClusteringAlgorithms.RANDOM_SEED:System.nanoTime(),
+				ClusteringAlgorithms.KMEANS_RESTART_CANCEL_RATIO);
+	}
+
+	/** @param( 	type		= engine of each run {LLOYDS, KMEANS_PLUS_PLUS, ELKAN, HAMERLY, MINI_BATCH, KD_TREE, BISECTING},
+	 * 			restarts	= # of runs,
+	 * 			seed		= seed the seeds of the runs are derived from,
+	 * 			cancelRatio	= how many times the best finished cost a run may still be at, before being cancelled)*/
+	public KmeansRestarts(Dataset dataset, int totalClusters, int type, int restarts, long seed, double cancelRatio) {
+		this.dataset=dataset;
+		this.totalClusters=totalClusters;
+		this.type=type;
+		this.cancelRatio=cancelRatio;
+		this.seeds=new long[Math.max(1, restarts)];
+		this.runs=new Kmeans[seeds.length];
+		Random random = new Random(seed);
+		for (int restart = 0; restart < seeds.length; restart++) {
+			seeds[restart]=random.nextLong();
+		}
+	}
+
+	/** Runs all the restarts and prints the clusters of the best one (as per the PRINT_* flags)
+	 * @return the output contract of the best run, see {@link Kmeans#getPoints()}*/
+	public Map<Integer, Point> findClusters() {
+		return findBest().reportClusters();
+	}
+
+	/** @return the (fitted) run with the lowest aggregate clustering cost*/
+	public Kmeans findBest() {
+		Parallelism.getPool().submit(() -> IntStream.range(0, runs.length).parallel().forEach(this::run)).join();
+		Kmeans best=null;
+		double bestCost=Double.MAX_VALUE;
+		for (int restart = 0; restart < runs.length; restart++) {
+			if(runs[restart].isCancelled())
+				continue;
+			double cost = runs[restart].calculateAggregateClusteringCost();
+			if(ClusteringAlgorithms.DEBUG_MODE) {
+				System.out.printf("Restart#%2d : cost=%.3f after %d iterations\n", restart+1, cost, runs[restart].getIterations());
+			}
+			if(best==null || cost<bestCost) {
+				best=runs[restart];
+				bestCost=cost;
+			}
+		}
+		return best;
+	}
+
+	private void run(int restart) {
+		Kmeans kmeans = Kmeans.newInstance(dataset, totalClusters, type, seeds[restart]);
+		runs[restart]=kmeans;
+		kmeans.addIterationListener((iteration, inertia, shift, reassigned) -> cancelIfHopeless(kmeans, iteration));
+		kmeans.fit();
+		if(kmeans.isCancelled()) {
+			if(ClusteringAlgorithms.DEBUG_MODE) {
+				System.out.printf("Restart#%2d : cancelled after %d iterations at cost=%.3f\n", restart+1, kmeans.getIterations(), kmeans.getCurrentCost());
+			}
+			return;
+		}
+		finished(kmeans.calculateAggregateClusteringCost());
+	}
+
+	private synchronized void finished(double cost) {
+		bestFinishedCost=Math.min(bestFinishedCost, cost);
+	}
+
+	private synchronized double getBestFinishedCost() {
+		return bestFinishedCost;
+	}
+
+	/** Cancels the run if its cost is still too far from the best finished one, except mini-batch runs whose per batch cost
+	 * isn't monotonic (on a weighted dataset MINI_BATCH is run as KMEANS_PLUS_PLUS, hence can be cancelled)*/
+	private void cancelIfHopeless(Kmeans kmeans, int iteration) {
+		if(cancelRatio>0 && iteration>=MIN_ITERATIONS_BEFORE_CANCEL && !(kmeans instanceof MiniBatchKmeans)
+				&& kmeans.getCurrentCost()>cancelRatio*getBestFinishedCost()) {
+			kmeans.cancel();
+		}
+	}
+
+	/** @return all the runs, cancelled ones included (nulls before {@link #findBest()})*/
+	public Kmeans[] getRuns() {
+		return runs;
+	}
+}
@@ -0,0 +1,287 @@
+package com.khetanshu.machinelearning.clustering.algos;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import com.khetanshu.machinelearning.clustering.vo.Dataset;
+
+/**
+ * Selection of the initial centroids of k-means.
+ *
+ * 1. k-means++ (Arthur & Vassilvitskii): the first centroid is a random point, every next one is a point sampled with
+ *    probability proportional to D²(x) i.e. its square distance from the nearest centroid chosen so far. D² of each
+ *    point is cached and only compared with the newest centroid, hence a centroid costs O(n*d) (in parallel).
+ * 2. k-means|| (Bahmani et al.): the first centroid is a random point, then in each of a few rounds every point is
+ *    picked independently with probability l*D²(x)/Σ D² (l = 2k, the oversampling factor), in parallel. The ~l*rounds
+ *    candidates are weighted by the # of points nearest to them and reduced to k by a weighted k-means++ followed by
+ *    weighted Lloyd's iterations over the candidates only.
+ *
+ * If the points are weighted (e.g. a coreset) the first centroid is sampled by weight, D²(x) is scaled by the weight of
+ * the point and the weight of a candidate is the total weight of the points nearest to it.
+ *
+ * All the randomness comes from the given (seeded) Random and the points are processed in fixed partitions
+ * (per partition random streams, reduced in partition order), so the same seed gives the same centroids
+ * whatever the parallelism level.
+ *
+ * DATA STRUCTURE USED:
+ * 1. Array (cached D² and nearest centroid per point, per partition sums)
+ * 2. Fork-Join Pool
+ *
+ * ASYMPTOTIC COMPLEXITY(Worst case):
+ * k-means++	: O(n*k*d / p)
+ * k-means||	: O(n*l*r*d / p + (l*r)*k*d*i)
+ *
+ * where,
+ * n : # of point ,  k : number of clusters,  d : number of attributes, p : parallelism
+ * l : oversampling factor, r : rounds, i : iterations over the candidates
+ */
+public class KmeansSeeding {
+	/**Max # of weighted Lloyd's iterations over the candidates of k-means||*/
+	private static final int MAX_CANDIDATE_ITERATIONS=100;
+
+	private final Dataset dataset;
+	private final Random random;
+	private final ForkJoinPool pool;
+	private final int dimensions;
+	private final int[] partitionBounds;
+	private final double[] minSquareDistances;	/**<per point, D² from the nearest centroid (candidate) so far*/
+	private final int[] nearest;				/**<per point, index of that centroid (candidate)*/
+	private final double[] partitionSums;		/**<per partition, Σ w*D² of its points*/
+
+	public KmeansSeeding(Dataset dataset, Random random, ForkJoinPool pool) {
+		this.dataset=dataset;
+		this.random=random;
+		this.pool=pool;
+		this.dimensions=dataset.getDimensions();
+		this.partitionBounds=Kmeans.calculatePartitionBounds(dataset.getSize());
+		this.minSquareDistances=new double[dataset.getSize()];
+		this.nearest=new int[dataset.getSize()];
+		this.partitionSums=new double[partitionBounds.length-1];
+	}
+
+	/** Writes k centroids chosen by D² sampling into the flattened k*d "centroids"*/
+	public void kmeansPlusPlus(int totalClusters, double[] centroids) {
+		Arrays.fill(minSquareDistances, Double.MAX_VALUE);
+		dataset.copyPoint(randomPoint(), centroids, 0);
+		updateMinSquareDistances(centroids, 0, 1);
+		addBySquareDistance(1, totalClusters, centroids);
+	}
+
+	/** Continues k-means++ from the first "fromClusters" centroids already in "centroids" (e.g. of a fitted k-means
+	 * with less clusters) i.e. writes the centroids [fromClusters, k) chosen by D² sampling*/
+	public void kmeansPlusPlus(int fromClusters, int totalClusters, double[] centroids) {
+		if(fromClusters<=0) {
+			kmeansPlusPlus(totalClusters, centroids);
+			return;
+		}
+		Arrays.fill(minSquareDistances, Double.MAX_VALUE);
+		updateMinSquareDistances(centroids, 0, fromClusters);
+		addBySquareDistance(fromClusters, totalClusters, centroids);
+	}
+
+	private void addBySquareDistance(int fromClusters, int totalClusters, double[] centroids) {
+		for (int clusterId = fromClusters; clusterId < totalClusters; clusterId++) {
+			dataset.copyPoint(sampleBySquareDistance(), centroids, clusterId*dimensions);
+			updateMinSquareDistances(centroids, clusterId, clusterId+1);
+		}
+	}
+
+	/** Writes k centroids chosen by k-means|| (with "rounds" oversampling rounds) into the flattened k*d "centroids".
+	 * Falls back to k-means++ if less than k distinct candidates were found (e.g. tiny or degenerate data)*/
+	public void kmeansParallel(int totalClusters, double[] centroids, int rounds) {
+		Arrays.fill(minSquareDistances, Double.MAX_VALUE);
+		double oversampling = 2.0*totalClusters;
+		List<Integer> candidatePoints = new ArrayList<>();
+		candidatePoints.add(randomPoint());
+		double[] candidates = new double[dimensions];
+		dataset.copyPoint(candidatePoints.get(0), candidates, 0);
+		updateMinSquareDistances(candidates, 0, 1);
+		for (int round = 0; round < rounds; round++) {
+			double totalSquareDistance = sumPartitions();
+			if(totalSquareDistance<=0) {
+				break;
+			}
+			/**Each point is picked independently, with a random stream per partition*/
+			long roundSeed = random.nextLong();
+			List<List<Integer>> picked = new ArrayList<>(Collections.nCopies(partitionSums.length, null));
+			forEachPartition(partition -> {
+				SplittableRandom partitionRandom = new SplittableRandom(roundSeed+partition*0x9E3779B97F4A7C15L);
+				List<Integer> partitionPicked = new ArrayList<>();
+				for (int pointId = partitionBounds[partition]; pointId < partitionBounds[partition+1]; pointId++) {
+					if(partitionRandom.nextDouble()*totalSquareDistance<oversampling*dataset.getWeight(pointId)*minSquareDistances[pointId]) {
+						partitionPicked.add(pointId);
+					}
+				}
+				picked.set(partition, partitionPicked);
+			});
+			int from = candidatePoints.size();
+			for (List<Integer> partitionPicked : picked) {
+				candidatePoints.addAll(partitionPicked);
+			}
+			candidates = Arrays.copyOf(candidates, candidatePoints.size()*dimensions);
+			for (int candidateId = from; candidateId < candidatePoints.size(); candidateId++) {
+				dataset.copyPoint(candidatePoints.get(candidateId), candidates, candidateId*dimensions);
+			}
+			updateMinSquareDistances(candidates, from, candidatePoints.size());
+		}
+		if(candidatePoints.size()<totalClusters) {
+			kmeansPlusPlus(totalClusters, centroids);
+			return;
+		}
+		/**Weight of a candidate = # (total weight) of points nearest to it*/
+		double[] weights = new double[candidatePoints.size()];
+		for (int pointId = 0; pointId < dataset.getSize(); pointId++) {
+			weights[nearest[pointId]]+=dataset.getWeight(pointId);
+		}
+		Dataset candidateSet = new Dataset(candidatePoints.size(), dimensions, candidates, new int[candidatePoints.size()]);
+		reduceCandidates(candidateSet, weights, totalClusters, centroids);
+	}
+
+	/** Weighted k-means++ followed by weighted Lloyd's iterations over the (few) candidates*/
+	private void reduceCandidates(Dataset candidateSet, double[] weights, int totalClusters, double[] centroids) {
+		int size = candidateSet.getSize();
+		double[] minDistances = new double[size];
+		Arrays.fill(minDistances, Double.MAX_VALUE);
+		int candidateId = random.nextInt(size);
+		for (int clusterId = 0; clusterId < totalClusters; clusterId++) {
+			if(clusterId>0) {
+				double total=0;
+				for (int i = 0; i < size; i++) {
+					total+=weights[i]*minDistances[i];
+				}
+				if(total<=0) {
+					/**Less distinct candidates than clusters (identical points picked together), any candidate would do*/
+					candidateId=random.nextInt(size);
+				}else {
+					double threshold = random.nextDouble()*total;
+					candidateId=-1;
+					for (int i = 0; i < size && threshold>=0; i++) {
+						if(weights[i]*minDistances[i]>0) {
+							candidateId=i;
+							threshold-=weights[i]*minDistances[i];
+						}
+					}
+				}
+			}
+			candidateSet.copyPoint(candidateId, centroids, clusterId*dimensions);
+			for (int i = 0; i < size; i++) {
+				minDistances[i]=Math.min(minDistances[i], candidateSet.squareDistance(i, centroids, clusterId*dimensions));
+			}
+		}
+		int[] assigned = new int[size];
+		Arrays.fill(assigned, -1);
+		for (int iteration = 0; iteration < MAX_CANDIDATE_ITERATIONS; iteration++) {
+			boolean changeFound=false;
+			double[] sums = new double[totalClusters*dimensions];
+			double[] clusterWeights = new double[totalClusters];
+			for (int i = 0; i < size; i++) {
+				int nearestCluster=-1;
+				double minSquareDistance=Double.MAX_VALUE;
+				for (int clusterId = 0; clusterId < totalClusters; clusterId++) {
+					double squareDistance = candidateSet.squareDistance(i, centroids, clusterId*dimensions);
+					if(squareDistance<minSquareDistance) {
+						minSquareDistance=squareDistance;
+						nearestCluster=clusterId;
+					}
+				}
+				if(assigned[i]!=nearestCluster) {
+					assigned[i]=nearestCluster;
+					changeFound=true;
+				}
+				clusterWeights[nearestCluster]+=weights[i];
+				for (int dimensionId = 0; dimensionId < dimensions; dimensionId++) {
+					sums[nearestCluster*dimensions+dimensionId]+=weights[i]*candidateSet.getValue(i, dimensionId);
+				}
+			}
+			if(!changeFound) {
+				break;
+			}
+			for (int clusterId = 0; clusterId < totalClusters; clusterId++) {
+				if(clusterWeights[clusterId]==0)
+					continue;
+				for (int dimensionId = 0; dimensionId < dimensions; dimensionId++) {
+					centroids[clusterId*dimensions+dimensionId]=sums[clusterId*dimensions+dimensionId]/clusterWeights[clusterId];
+				}
+			}
+		}
+	}
+
+	/** @return a point sampled uniformly, or with probability w/Σw if the points are weighted*/
+	private int randomPoint() {
+		if(!dataset.isWeighted()) {
+			return random.nextInt(dataset.getSize());
+		}
+		double threshold = random.nextDouble()*dataset.getTotalWeight();
+		int chosen=0;
+		for (int pointId = 0; pointId < dataset.getSize() && threshold>=0; pointId++) {
+			if(dataset.getWeight(pointId)>0) {
+				chosen=pointId;
+				threshold-=dataset.getWeight(pointId);
+			}
+		}
+		return chosen;
+	}
+
+	/** @return a point sampled with probability w*D²(x)/Σ w*D² (the partition first, then the point within it)*/
+	private int sampleBySquareDistance() {
+		double total = sumPartitions();
+		if(total<=0) {
+			/**Less distinct points than clusters, any point would do*/
+			return random.nextInt(dataset.getSize());
+		}
+		double threshold = random.nextDouble()*total;
+		int partition=0;
+		while(partition<partitionSums.length-1 && threshold>=partitionSums[partition]) {
+			threshold-=partitionSums[partition];
+			partition++;
+		}
+		int chosen=-1;
+		for (int pointId = partitionBounds[partition]; pointId < partitionBounds[partition+1] && threshold>=0; pointId++) {
+			double weightedSquareDistance = dataset.getWeight(pointId)*minSquareDistances[pointId];
+			if(weightedSquareDistance>0) {
+				chosen=pointId;
+				threshold-=weightedSquareDistance;
+			}
+		}
+		return chosen>=0?chosen:random.nextInt(dataset.getSize());
+	}
+
+	/** Updates the cached D² (and the nearest one) of every point with the centroids [fromCentroid, toCentroid) and
+	 * the per partition sums*/
+	private void updateMinSquareDistances(double[] centroids, int fromCentroid, int toCentroid) {
+		forEachPartition(partition -> {
+			double sum=0;
+			for (int pointId = partitionBounds[partition]; pointId < partitionBounds[partition+1]; pointId++) {
+				for (int centroidId = fromCentroid; centroidId < toCentroid; centroidId++) {
+					double squareDistance = dataset.squareDistance(pointId, centroids, centroidId*dimensions);
+					if(squareDistance<minSquareDistances[pointId]) {
+						minSquareDistances[pointId]=squareDistance;
+						nearest[pointId]=centroidId;
+					}
+				}
+				sum+=dataset.getWeight(pointId)*minSquareDistances[pointId];
+			}
+			partitionSums[partition]=sum;
+		});
+	}
+
+	/** @return Σ w*D², summed in partition order*/
+	private double sumPartitions() {
+		double total=0;
+		for (double partitionSum : partitionSums) {
+			total+=partitionSum;
+		}
+		return total;
+	}
+
+	private void forEachPartition(IntConsumer action) {
+		pool.submit(() -> IntStream.range(0, partitionSums.length).parallel().forEach(action)).join();
+	}
+}
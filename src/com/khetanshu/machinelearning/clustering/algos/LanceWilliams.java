@@ -0,0 +1,65 @@
+package com.khetanshu.machinelearning.clustering.algos;
+
+import com.khetanshu.machinelearning.clustering.util.CONSTANTS;
+
+/**
+ * Lance–Williams formulas i.e. the (square) distance of a merged cluster A∪B from any other cluster K, from d(A,K),
+ * d(B,K), d(A,B) and the sizes only, so the linkages never go back to the points:
+ * d(A∪B,K) = αA*d(A,K) + αB*d(B,K) + β*d(A,B) + γ*|d(A,K) - d(B,K)|
+ * - single   : αA = αB = 1/2, β = 0, γ = -1/2 i.e. min(d(A,K), d(B,K))
+ * - complete : αA = αB = 1/2, β = 0, γ = 1/2 i.e. max(d(A,K), d(B,K))
+ * - average  : αA = |A|/(|A|+|B|), αB = |B|/(|A|+|B|), β = γ = 0 i.e. the mean of the pairwise distances (as a running
+ *              sum over the pairs)
+ * - ward     : αA = (|A|+|K|)/(|A|+|B|+|K|), αB = (|B|+|K|)/(|A|+|B|+|K|), β = -|K|/(|A|+|B|+|K|), γ = 0 i.e. twice the
+ *              increase of the within cluster sum of squares by the merge (the square distance for two points)
+ * - centroid : αA = |A|/(|A|+|B|), αB = |B|/(|A|+|B|), β = -|A||B|/(|A|+|B|)^2, γ = 0 i.e. the square distance between
+ *              the centroids
+ * - median   : αA = αB = 1/2, β = -1/4, γ = 0 i.e. the square distance between the "medians" (the centroids as if the
+ *              two merged clusters were of the same size)
+ * The formulas of ward, centroid and median hold for the square Euclidean distances only, which is what all the
+ * linkages here use.
+ *
+ * Single, complete, average and ward are "reducible" (a merged cluster is never closer to K than the nearer of A and B)
+ * so the closest pairs may be merged in any order e.g. along a nearest neighbour chain; centroid and median aren't,
+ * their merges may even get lower than the earlier ones (inversions).
+ *
+ * ASYMPTOTIC COMPLEXITY(Worst case):
+ * O(1) per update
+ */
+public final class LanceWilliams {
+	private LanceWilliams() {
+	}
+
+	/** @param( 	distanceA, distanceB	= d(A,K), d(B,K),
+	 * 			distanceAB				= d(A,B),
+	 * 			sizeA, sizeB, sizeK		= # of points of A, B and K)
+	 * @return d(A∪B,K) */
+	public static double update(int linkageType, double distanceA, double distanceB, double distanceAB, long sizeA, long sizeB,
+			long sizeK) {
+		switch(linkageType) {
+		case CONSTANTS.SINGLE_LINKAGE:
+			return Math.min(distanceA, distanceB);
+		case CONSTANTS.COMPLETE_LINKAGE:
+			return Math.max(distanceA, distanceB);
+		case CONSTANTS.AVERAGE_LINKAGE:
+			long pairsA = sizeA*sizeK;
+			long pairsB = sizeB*sizeK;
+			return (distanceA*pairsA+distanceB*pairsB)/(pairsA+pairsB);
+		case CONSTANTS.WARD_LINKAGE:
+			return ((sizeA+sizeK)*distanceA+(sizeB+sizeK)*distanceB-sizeK*distanceAB)/(sizeA+sizeB+sizeK);
+		case CONSTANTS.CENTROID_LINKAGE:
+			double sizeAB = sizeA+sizeB;
+			return (sizeA*distanceA+sizeB*distanceB)/sizeAB-sizeA*sizeB*distanceAB/(sizeAB*sizeAB);
+		case CONSTANTS.MEDIAN_LINKAGE:
+			return 0.5*distanceA+0.5*distanceB-0.25*distanceAB;
+		default:
+			throw new IllegalArgumentException("Unknown linkage type "+linkageType);
+		}
+	}
+
+	/** @return true if merging any reciprocal nearest neighbours gives the same dendrogram as merging the closest pair*/
+	public static boolean isReducible(int linkageType) {
+		return linkageType==CONSTANTS.SINGLE_LINKAGE || linkageType==CONSTANTS.COMPLETE_LINKAGE
+				|| linkageType==CONSTANTS.AVERAGE_LINKAGE || linkageType==CONSTANTS.WARD_LINKAGE;
+	}
+}
@@ -0,0 +1,220 @@
+package com.khetanshu.machinelearning.clustering.algos;
+
+import java.util.stream.IntStream;
+
+import com.khetanshu.machinelearning.clustering.main.ClusteringAlgorithms;
+import com.khetanshu.machinelearning.clustering.util.CONSTANTS;
+import com.khetanshu.machinelearning.clustering.vo.Dataset;
+
+/**
+ * Mini-batch k-means (Sculley): each iteration samples a batch of b points (with replacement), assigns them to their
+ * nearest centroid and moves each centroid towards the mean of its batch points with its own learning rate
+ * 1/(# of points it has received so far), i.e. the same as averaging all the points the centroid has ever been given.
+ * Hence the cost of an iteration depends on b and not on n; only one full assignment pass is done at the end
+ * (to produce the output). The result is an approximation of the Lloyd's clusters.
+ * The initial centroids are seeded (k-means++ or k-means||) on a sample of 3 batches rather than on all the points.
+ *
+ * It stops after MINI_BATCH_MAX_ITERATIONS, or once the centroids stop moving i.e. when the smoothed (exponential
+ * moving average) mean square shift of the centroids falls under MINI_BATCH_TOLERANCE times the mean variance
+ * of the attributes (estimated on the first batch). The batches being random, the shift never settles at 0, hence
+ * there is always an iteration cap: 0 (no limit for the other engines) means DEFAULT_MAX_ITERATIONS here.
+ *
+ * DATA STRUCTURE USED:
+ * 1. Array (batch points, per centroid counts and batch sums)
+ * 2. Fork-Join Pool (the batch assignment)
+ *
+ * ASYMPTOTIC COMPLEXITY(Worst case):
+ * O(b*k*d / p) per iteration, plus O(n*k*d / p) once for the final assignment
+ *
+ * where,
+ * n : # of point ,  k : number of clusters,  d : number of attributes, b : batch size, p : parallelism
+ */
+public class MiniBatchKmeans extends Kmeans {
+	/**Weight of the latest iteration in the moving average of the centroid shifts*/
+	private static final double SHIFT_SMOOTHING=0.1;
+	/**The initial centroids are selected among this many batches worth of sampled points*/
+	private static final int SEEDING_SAMPLE_FACTOR=3;
+	/**Iteration cap used when none is set, a 0 tolerance would otherwise never be met on noisy batches*/
+	public static final int DEFAULT_MAX_ITERATIONS=300;
+
+	private final int batchSize;
+	private final double tolerance;
+	private int[] batch;					/**<points of the current batch*/
+	private int[] batchClusters;			/**<nearest centroid of each point of the batch*/
+	private double[] batchSquareDistances;	/**<square distance of each point of the batch from that centroid*/
+	private long[] counts;					/**<per centroid, # of points received so far (inverse of its learning rate)*/
+	private double[] shifts;				/**<per centroid, distance moved by the last update*/
+	private double averageSquareShift=-1;	/**<moving average of the mean square shift of the centroids*/
+	private double meanVariance=-1;		/**<mean variance of the attributes, scale of the tolerance*/
+
+	public MiniBatchKmeans(Dataset dataset, int totalClusters, long seed) {
+		this(dataset, totalClusters, seed, null);
+	}
+
+	/** @param initialCentroids = flattened k*d centroids to start from (warm start, no seeding), null to seed them on a
+	 * sample*/
+	public MiniBatchKmeans(Dataset dataset, int totalClusters, long seed, double[] initialCentroids) {
+		this(dataset, totalClusters, seed, ClusteringAlgorithms.MINI_BATCH_SIZE, ClusteringAlgorithms.MINI_BATCH_MAX_ITERATIONS,
+				ClusteringAlgorithms.MINI_BATCH_TOLERANCE, initialCentroids);
+	}
+
+	/** @param( 	batchSize		= # of points sampled per iteration,
+	 * 			maxIterations	= max # of mini-batch iterations (0 = DEFAULT_MAX_ITERATIONS),
+	 * 			tolerance		= mean square shift of the centroids (relative to the variance of the data) to stop at)*/
+	public MiniBatchKmeans(Dataset dataset, int totalClusters, long seed, int batchSize, int maxIterations, double tolerance) {
+		this(dataset, totalClusters, seed, batchSize, maxIterations, tolerance, null);
+	}
+
+	private MiniBatchKmeans(Dataset dataset, int totalClusters, long seed, int batchSize, int maxIterations, double tolerance,
+			double[] initialCentroids) {
+		super(dataset, totalClusters, CONSTANTS.MINI_BATCH, seed, initialCentroids);
+		this.batchSize=Math.max(1, batchSize);
+		setMaxIterations(maxIterations);
+		setTolerances(0, 0);
+		this.tolerance=tolerance;
+		batch = new int[this.batchSize];
+		batchClusters = new int[this.batchSize];
+		batchSquareDistances = new double[this.batchSize];
+		counts = new long[totalClusters];
+		shifts = new double[totalClusters];
+		if(initialCentroids==null) {
+			findInitialClusters(sample(Math.max(SEEDING_SAMPLE_FACTOR*this.batchSize, SEEDING_SAMPLE_FACTOR*totalClusters)));
+		}
+	}
+
+	/**@param maxIterations = max # of mini-batch iterations (0 = DEFAULT_MAX_ITERATIONS, there is no "until no point
+	 * moves" for the batches)*/
+	@Override
+	public void setMaxIterations(int maxIterations) {
+		super.setMaxIterations(maxIterations>0 ? maxIterations : DEFAULT_MAX_ITERATIONS);
+	}
+
+	/** @return a copy of "sampleSize" points sampled with replacement (or the dataset itself if it isn't larger)*/
+	private Dataset sample(int sampleSize) {
+		if(sampleSize>=dataset.getSize()) {
+			return dataset;
+		}
+		Dataset sample = new Dataset(sampleSize, dimensions);
+		for (int i = 0; i < sampleSize; i++) {
+			dataset.copyPoint(random.nextInt(dataset.getSize()), sample.getValues(), sample.offset(i));
+		}
+		return sample;
+	}
+
+	/** Samples a batch and assigns its points to their nearest centroid
+	 * @return true, the mini-batch iterations only stop by {@link #hasConverged(double)}*/
+	@Override
+	protected boolean reformClusters() {
+		for (int i = 0; i < batchSize; i++) {
+			batch[i]=random.nextInt(dataset.getSize());
+		}
+		if(meanVariance<0) {
+			meanVariance=calculateMeanVariance();
+		}
+		pool.submit(() -> IntStream.range(0, batchSize).parallel().forEach(this::assignBatchPoint)).join();
+		recordIteration((long)batchSize*totalClusters);
+		return true;
+	}
+
+	private void assignBatchPoint(int batchIndex) {
+		int pointId = batch[batchIndex];
+		int newClusterId = -1;
+		double minSquareDistance= Double.MAX_VALUE;
+		for (int clusterId = 0; clusterId < totalClusters; clusterId++) {
+			double squareDistance=dataset.squareDistance(pointId, centroids, clusterId*dimensions);
+			if(squareDistance<minSquareDistance) {
+				minSquareDistance=squareDistance;
+				newClusterId=clusterId;
+			}
+		}
+		batchClusters[batchIndex]=newClusterId;
+		batchSquareDistances[batchIndex]=minSquareDistance;
+	}
+
+	/** Moves each centroid by its learning rate towards its batch points i.e.
+	 * c = c + (sum of its batch points - m*c)/(# of points received so far, m of them in this batch)*/
+	@Override
+	protected void recalculateTheCentroids() {
+		double[] previousCentroids = centroids.clone();
+		long[] batchCounts = new long[totalClusters];
+		double[] batchSums = new double[centroids.length];
+		double[] values = dataset.getValues();
+		double batchCost=0;
+		reassigned=0;
+		for (int i = 0; i < batchSize; i++) {
+			if(assignedClusters[batch[i]]!=batchClusters[i]) {
+				assignedClusters[batch[i]]=batchClusters[i];
+				reassigned++;
+			}
+			batchCost+=batchSquareDistances[i];
+			int clusterOffset = batchClusters[i]*dimensions;
+			int pointOffset = dataset.offset(batch[i]);
+			batchCounts[batchClusters[i]]++;
+			for (int dimensionId = 0; dimensionId < dimensions; dimensionId++) {
+				batchSums[clusterOffset+dimensionId]+=values[pointOffset+dimensionId];
+			}
+		}
+		for (int clusterId = 0; clusterId < totalClusters; clusterId++) {
+			if(batchCounts[clusterId]==0)
+				continue;
+			counts[clusterId]+=batchCounts[clusterId];
+			for (int dimensionId = 0; dimensionId < dimensions; dimensionId++) {
+				int i = clusterId*dimensions+dimensionId;
+				centroids[i]+=(batchSums[i]-batchCounts[clusterId]*centroids[i])/counts[clusterId];
+			}
+		}
+		calculateShifts(previousCentroids, shifts);
+		double meanSquareShift=0;
+		maxShift=0;
+		for (int clusterId = 0; clusterId < totalClusters; clusterId++) {
+			meanSquareShift+=shifts[clusterId]*shifts[clusterId];
+			maxShift=Math.max(maxShift, shifts[clusterId]);
+		}
+		meanSquareShift/=totalClusters;
+		averageSquareShift = averageSquareShift<0?meanSquareShift:(1-SHIFT_SMOOTHING)*averageSquareShift+SHIFT_SMOOTHING*meanSquareShift;
+		currentCost=batchCost/batchSize;
+		afterCentroidsMoved(previousCentroids);
+	}
+
+	/** @return true at the max # of iterations or once the smoothed mean square shift is within the tolerance*/
+	@Override
+	protected boolean hasConverged(double previousCost) {
+		if(super.hasConverged(previousCost)) {
+			return true;
+		}
+		boolean converged = averageSquareShift<=tolerance*meanVariance;
+		if(converged && ClusteringAlgorithms.DEBUG_MODE) {
+			System.out.printf("Mini-batch converged after %d iterations (mean square shift %.3e)\n",getIterations(),averageSquareShift);
+		}
+		return converged;
+	}
+
+	/** @return mean of the variances of the attributes over the points of the batch
+	 * (centred on the first batch point, so that large offsets don't cancel the variance out)*/
+	private double calculateMeanVariance() {
+		double[] sums = new double[dimensions];
+		double[] squareSums = new double[dimensions];
+		double[] values = dataset.getValues();
+		int originOffset = dataset.offset(batch[0]);
+		for (int pointId : batch) {
+			int pointOffset = dataset.offset(pointId);
+			for (int dimensionId = 0; dimensionId < dimensions; dimensionId++) {
+				double value = values[pointOffset+dimensionId]-values[originOffset+dimensionId];
+				sums[dimensionId]+=value;
+				squareSums[dimensionId]+=value*value;
+			}
+		}
+		double variance=0;
+		for (int dimensionId = 0; dimensionId < dimensions; dimensionId++) {
+			double mean = sums[dimensionId]/batchSize;
+			variance+=Math.max(0, squareSums[dimensionId]/batchSize-mean*mean);
+		}
+		return variance/Math.max(1, dimensions);
+	}
+
+	/** One full (parallel) assignment pass over all the points for the output */
+	@Override
+	protected void assignToFinalCentroids() {
+		super.reformClusters();
+	}
+}
@@ -0,0 +1,116 @@
+package com.khetanshu.machinelearning.clustering.algos;
+
+import java.util.Arrays;
+
+import com.khetanshu.machinelearning.clustering.vo.DistanceMatrix;
+import com.khetanshu.machinelearning.clustering.vo.MergeHistory;
+
+/**
+ * Complete, average and ward linkage by the nearest neighbour chain (Murtagh): a chain is grown from any cluster to its
+ * nearest neighbour, to the neighbour's nearest neighbour and so on, until the last two clusters are reciprocal nearest
+ * neighbours, which are then merged and popped. For the "reducible" linkages merging reciprocal nearest neighbours
+ * gives the same dendrogram as always merging the closest pair, hence the merges are only sorted by height in the end.
+ *
+ * The distances of the merged cluster from the others are updated in the matrix from the two rows only, by the
+ * formula of the linkage (see {@link LanceWilliams}), and the merged cluster takes the row of the lower index.
+ *
+ * Ties are broken deterministically: the nearest neighbour of the chain's tip is its predecessor in the chain if that
+ * is one of the nearest (so that the chain always ends), else the nearest one of the lowest index; merges of equal
+ * heights keep the order they were found in.
+ * NOTE: the merges are the same as those of the former closest pair search (edges in a priority queue) only when no
+ * two distances are equal. With ties (e.g. points on an integer grid) the pairs of equal distance are merged in
+ * another order, which is as valid a dendrogram but may cut into another partition at some k, all the more so for
+ * complete and average linkage where an earlier tie changes the later distances.
+ *
+ * DATA STRUCTURE USED:
+ * 1. Array (condensed distance matrix, chain as a stack, merges)
+ * 2. Disjoint Sets (to number the clusters of the sorted merges)
+ *
+ * ASYMPTOTIC COMPLEXITY(Worst case):
+ * O(n^2) time, over the O(n^2) matrix
+ *
+ * where,
+ * n : # of point
+ */
+public class NearestNeighborChain {
+	private final DistanceMatrix matrix;
+	private final int linkageType;
+	private final int size;
+
+	/** @param( 	matrix		= distances between the points, updated in place as the clusters merge,
+	 * 			linkageType	= any reducible one i.e. SINGLE, COMPLETE, AVERAGE or WARD)*/
+	public NearestNeighborChain(DistanceMatrix matrix, int linkageType) {
+		if(!LanceWilliams.isReducible(linkageType)) {
+			throw new IllegalArgumentException("Nearest neighbour chain doesn't support the linkage type "+linkageType);
+		}
+		this.matrix=matrix;
+		this.linkageType=linkageType;
+		this.size=matrix.getSize();
+	}
+
+	/** @return all the n-1 merges (the full dendrogram), in the order of their heights*/
+	public MergeHistory findMerges() {
+		int totalMerges = Math.max(0, size-1);
+		int[] mergedA = new int[totalMerges];
+		int[] mergedB = new int[totalMerges];
+		double[] heights = new double[totalMerges];
+		boolean[] active = new boolean[size];
+		int[] clusterSizes = new int[size];
+		Arrays.fill(active, true);
+		Arrays.fill(clusterSizes, 1);
+		int[] chain = new int[size];
+		int chainLength=0;
+		int firstActive=0;
+
+		for (int merge = 0; merge < totalMerges; merge++) {
+			if(chainLength==0) {
+				while(!active[firstActive]) {
+					firstActive++;
+				}
+				chain[chainLength++]=firstActive;
+			}
+			/**Grow the chain until its tip and its predecessor are reciprocal nearest neighbours*/
+			int a, b;
+			while(true) {
+				a = chain[chainLength-1];
+				int previous = chainLength>1?chain[chainLength-2]:-1;
+				b = previous;
+				double minDistance = previous>=0?matrix.get(a, previous):Double.POSITIVE_INFINITY;
+				for (int k = 0; k < size; k++) {
+					if(active[k] && k!=a) {
+						double distance = matrix.get(a, k);
+						if(distance<minDistance || b<0) {
+							minDistance=distance;
+							b=k;
+						}
+					}
+				}
+				if(b==previous) {
+					chainLength-=2;
+					break;
+				}
+				chain[chainLength++]=b;
+			}
+			mergedA[merge]=Math.min(a, b);
+			mergedB[merge]=Math.max(a, b);
+			heights[merge]=matrix.get(a, b);
+			merge(mergedA[merge], mergedB[merge], active, clusterSizes);
+		}
+		return MergeHistory.sortByHeight(size, linkageType, mergedA, mergedB, heights);
+	}
+
+	/** Lance–Williams update of the row "keep" (which becomes A∪B) from the rows "keep" and "drop"*/
+	private void merge(int keep, int drop, boolean[] active, int[] clusterSizes) {
+		active[drop]=false;
+		long sizeA = clusterSizes[keep];
+		long sizeB = clusterSizes[drop];
+		double distanceAB = matrix.get(keep, drop);
+		for (int k = 0; k < size; k++) {
+			if(!active[k] || k==keep)
+				continue;
+			matrix.set(keep, k, LanceWilliams.update(linkageType, matrix.get(keep, k), matrix.get(drop, k), distanceAB, sizeA, sizeB,
+					clusterSizes[k]));
+		}
+		clusterSizes[keep]=(int)(sizeA+sizeB);
+	}
+}
@@ -0,0 +1,102 @@
+package com.khetanshu.machinelearning.clustering.algos;
+
+import java.util.stream.IntStream;
+
+import com.khetanshu.machinelearning.clustering.util.Parallelism;
+import com.khetanshu.machinelearning.clustering.vo.Dataset;
+import com.khetanshu.machinelearning.clustering.vo.DistanceMatrix;
+
+/**
+ * Square distances between all the pairs of points, calculated tile by tile: the points are cut into blocks of
+ * TILE_SIZE and the tile (I,J) holds the distances of the block I from the block J, by one (many to many) kernel call,
+ * i.e. the TILE_SIZE points of J stay in the cache while all the points of I go over them. The blocks of rows run in
+ * parallel on the shared fork-join pool, each owning the rows of its points, so the consumers of the tiles (e.g. the
+ * condensed matrix of the linkages, or the per cluster sums of the silhouette) need no locking; the distance of each
+ * pair is the same whatever the tiling or the parallelism level.
+ *
+ * DATA STRUCTURE USED:
+ * 1. Array (one TILE_SIZE x TILE_SIZE buffer per block of rows)
+ * 2. Fork-Join Pool
+ *
+ * ASYMPTOTIC COMPLEXITY(Worst case):
+ * O(n^2 * d / p) time [half of it for the upper triangle], O(p * TILE_SIZE^2) space besides the consumer's
+ *
+ * where,
+ * n : # of point ,  d : number of attributes, p : parallelism
+ */
+public class PairwiseDistances {
+	public static final int TILE_SIZE=128;
+
+	/** Receives the square distances of a tile i.e. of the points [fromA, toA) from the points [fromB, toB), as
+	 * distances[(a-fromA)*(toB-fromB)+(b-fromB)]; all the tiles of the same rows (same fromA) are received by one thread,
+	 * in the order of fromB*/
+	public interface TileConsumer {
+		void accept(int fromA, int toA, int fromB, int toB, double[] distances);
+	}
+
+	/**
+	 * Calculates the tiles (I,J) for every J >= I if upperTriangle (the diagonal tiles are calculated whole), else for
+	 * every J. The blocks of rows of the upper triangle are taken in pairs from both ends (I, blocks-1-I) so that each
+	 * task has the same # of tiles
+	 */
+	public static void forEachTile(Dataset dataset, boolean upperTriangle, TileConsumer consumer) {
+		int size = dataset.getSize();
+		int blocks = (size+TILE_SIZE-1)/TILE_SIZE;
+		int tasks = upperTriangle?(blocks+1)/2:blocks;
+		Parallelism.getPool().submit(() -> IntStream.range(0, tasks).parallel().forEach(task -> {
+			double[] tile = new double[TILE_SIZE*TILE_SIZE];
+			calculateRows(dataset, task, upperTriangle?task:0, tile, consumer);
+			if(upperTriangle && blocks-1-task!=task) {
+				calculateRows(dataset, blocks-1-task, blocks-1-task, tile, consumer);
+			}
+		})).join();
+	}
+
+	/** Tiles of the block of rows "rowBlock" from the blocks of columns {fromBlock..}*/
+	private static void calculateRows(Dataset dataset, int rowBlock, int fromBlock, double[] tile, TileConsumer consumer) {
+		int size = dataset.getSize();
+		int fromA = rowBlock*TILE_SIZE;
+		int toA = Math.min(size, fromA+TILE_SIZE);
+		for (int fromB = fromBlock*TILE_SIZE; fromB < size; fromB+=TILE_SIZE) {
+			int toB = Math.min(size, fromB+TILE_SIZE);
+			dataset.getKernel().squareDistances(dataset.getValues(), fromA, toA, dataset.getValues(), fromB, toB,
+					dataset.getDimensions(), tile);
+			consumer.accept(fromA, toA, fromB, toB, tile);
+		}
+	}
+
+	/** @return the square distances between all the points of the dataset, stored as floats if singlePrecision*/
+	public static DistanceMatrix toMatrix(Dataset dataset, boolean singlePrecision) {
+		DistanceMatrix matrix = new DistanceMatrix(dataset.getSize(), singlePrecision);
+		forEachTile(dataset, true, (fromA, toA, fromB, toB, distances) -> {
+			for (int a = fromA; a < toA; a++) {
+				/**Only the pairs above the diagonal*/
+				int from = Math.max(fromB, a+1);
+				if(from<toB) {
+					matrix.setRow(a, from, distances, (a-fromA)*(toB-fromB)+from-fromB, toB-from);
+				}
+			}
+		});
+		return matrix;
+	}
+
+	/**
+	 * @param( 	clusterIds	= cluster {0..clusters-1} of each point,
+	 * 			clusters	= # of clusters)
+	 * @return sums[i*clusters+c] = Σ of the square distances of the point "i" from the points of the cluster "c", each
+	 * sum added up in the order of the points
+	 */
+	public static double[] sumByCluster(Dataset dataset, int[] clusterIds, int clusters) {
+		double[] sums = new double[dataset.getSize()*clusters];
+		/**Each pair is calculated from both its points, so that the sums of a point are added up by one thread only*/
+		forEachTile(dataset, false, (fromA, toA, fromB, toB, distances) -> {
+			for (int a = fromA; a < toA; a++) {
+				int tileRow = (a-fromA)*(toB-fromB);
+				for (int b = fromB; b < toB; b++) {
+					sums[a*clusters+clusterIds[b]]+=distances[tileRow+b-fromB];
+				}
+			}
+		});
+		return sums;
+	}
+}
@@ -1,164 +1,97 @@
 package com.khetanshu.machinelearning.clustering.algos;
 
-import java.util.Comparator;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.stream.IntStream;
 
-import com.khetanshu.corelib.DisjointSets;
-import com.khetanshu.machinelearning.clustering.vo.EdgeVo;
-import com.khetanshu.machinelearning.clustering.vo.Point;
+import com.khetanshu.machinelearning.clustering.util.CONSTANTS;
+import com.khetanshu.machinelearning.clustering.util.Parallelism;
+import com.khetanshu.machinelearning.clustering.vo.Dataset;
+import com.khetanshu.machinelearning.clustering.vo.MergeHistory;
 
-
-/*
- * Data structures: 
- * 1. Disjoint Sets
- * 2. Priority Queue
- * 3. Hash Map
- * 4. Hash Set
- * 5. Linked List
- * 6. Graphs
+/**
+ * Single linkage from the minimum spanning tree of the points: the single linkage dendrogram merges the clusters along
+ * the MST edges in the order of their lengths (Gower & Ross), so only the n-1 MST edges are sorted and replayed
+ * through the disjoint sets, instead of all the n(n-1)/2 edges.
+ *
+ * The MST is found by the dense Prim's algorithm without any edge or matrix: each point outside the tree keeps its
+ * distance from the nearest tree point, the nearest of them joins the tree, and the distances of the rest are
+ * updated from the newcomer only. Each step runs over fixed partitions of the points in parallel, and the partition
+ * minima are reduced in order (ties go to the lowest index), so the MST is the same whatever the parallelism level.
+ *
+ * DATA STRUCTURE USED:
+ * 1. Array (per point distance from the tree and nearest tree point, MST edges)
+ * 2. Disjoint Sets (to number the clusters of the sorted edges)
+ * 3. Fork-Join Pool
+ *
+ * ASYMPTOTIC COMPLEXITY(Worst case):
+ * O(n^2 * d / p + n.lg(n)) time, O(n) space
+ *
+ * where,
+ * n : # of point ,  d : number of attributes, p : parallelism
  */
 public class SingleLinkage {
-	private PriorityQueue<EdgeVo> edges;
-	private List<Integer> vertices;
-	private DisjointSets disjointSets;
-	private int requiredClusters;
-	private Map<Integer, Point> points;
-	
-	public SingleLinkage(Map<Integer, Point> points, int requiredClusters) {
-		this.points=points;
-		setEdges(new PriorityQueue<EdgeVo>(10, new Comparator<EdgeVo>() {
-			@Override
-			public int compare(EdgeVo e1, EdgeVo e2) {
-				if((e1.getDistance()-e2.getDistance())<0)
-					return -1;
-				return 1;
-			}
-		}));
-		vertices = new LinkedList<>();
-		for (Integer vertex : points.keySet()) {
-			vertices.add(vertex);
-		}
-		createEdges();
-		setDisjointSets(new DisjointSets());
-		setRequiredClusters(requiredClusters);
-	}
-
-	private EdgeVo getMinDistanceEdge() {
-		return edges.poll();
-	}
-	
-	private void createEdges() {
-		for (int i = 0; i < vertices.size(); i++) {
-			int vertexA = vertices.get(i);
-			for (int j = i+1; j < vertices.size(); j++) {
-				int vertexB = vertices.get(j);
-				Map<Integer, Double> dimensions_A=points.get(vertexA).getDimensions();
-				Map<Integer, Double> dimensions_B=points.get(vertexB).getDimensions();
-				edges.add(new EdgeVo(Point.calculateSquareDistance(dimensions_A, dimensions_B), vertexA, vertexB));
-			}
-		}
-	}
-	
-	public void findClusters() {
-		Set<Integer> clusterRoots= new HashSet<>();
-		/*Make all vertices as a cluster*/
-		for ( Integer vertex : vertices) {
-			if(disjointSets.makeSet(vertex)) {
-				clusterRoots.add(vertex);
-			}	
-		}
-		/*Now until we get the required # of clusters we would keep merging clusters with least distance*/
-		while (clusterRoots.size() > requiredClusters) {
-			/*Get pair of vertices having least distances and remove it from the priority queue*/
-			EdgeVo edge = getMinDistanceEdge();
-			if(edge==null)
-			{
-				System.out.println("TODO");
-			}
-			if(!(clusterRoots.contains(edge.getVertexA())&& clusterRoots.contains(edge.getVertexB())))
-				continue;
-			/*Merge this edge*/
-			System.out.println("Merging = "+ edge);
-//			Integer childVertex = disjointSets.union(edge.getVertexA(), edge.getVertexB());
-//			if(childVertex==-1) {
-//				if(disjointSets.getParent(edge.getVertexA())!=edge.getVertexA())
-//				{	clusterRoots.remove(edge.getVertexA());}
-//				if(disjointSets.getParent(edge.getVertexB())!=edge.getVertexB())
-//				{	clusterRoots.remove(edge.getVertexB());}
-//			}else {
-//				clusterRoots.remove(childVertex);
-//			}
-		}
-		System.out.println("clusterRoots:"+clusterRoots);
-		//System.out.println();
-		//disjointSets.displayStatus();
-		System.out.println();
-		printClusters();
-	}
-	
-	
-	
-	private void printClusters() {
-		for (Integer pointId : points.keySet()) {
-			Point point = points.get(pointId);
-			point.setAssignedCluster(disjointSets.findByPathCompression(pointId));
-			System.out.println("Point#"+ pointId +"{"+point+"}");
-		}
-	}
+	private final Dataset dataset;
+	private final int size;
 
-	
-	/*Getters and Setters*/
-	private PriorityQueue<EdgeVo> getEdges() {
-		return edges;
+	public SingleLinkage(Dataset dataset) {
+		this.dataset=dataset;
+		this.size=dataset.getSize();
 	}
 
-	private void setEdges(PriorityQueue<EdgeVo> edges) {
-		this.edges = edges;
-	}
-	
-	private List<Integer> getVertices() {
-		return vertices;
+	/** @return all the n-1 merges (the full dendrogram), in the order of their heights (square distances)*/
+	public MergeHistory findMerges() {
+		int totalEdges = Math.max(0, size-1);
+		int[] edgesFrom = new int[totalEdges];
+		int[] edgesTo = new int[totalEdges];
+		double[] lengths = new double[totalEdges];
+		findMinimumSpanningTree(edgesFrom, edgesTo, lengths);
+		return MergeHistory.sortByHeight(size, CONSTANTS.SINGLE_LINKAGE, edgesFrom, edgesTo, lengths);
 	}
 
-	private void setVertices(List<Integer> vertices) {
-		this.vertices =null;
-	}
-	
-	private DisjointSets getDisjointSets() {
-		return disjointSets;
-	}
-
-	private void setDisjointSets(DisjointSets disjoinSets) {
-		this.disjointSets = disjoinSets;
-	}
-
-	public int getRequiredClusters() {
-		return requiredClusters;
-	}
+	/** Dense Prim's algorithm from the point 0*/
+	private void findMinimumSpanningTree(int[] edgesFrom, int[] edgesTo, double[] lengths) {
+		if(size<2) {
+			return;
+		}
+		double[] minDistances = new double[size];		/**<distance from the tree, or NaN once in the tree*/
+		int[] nearest = new int[size];					/**<nearest tree point*/
+		Arrays.fill(minDistances, Double.POSITIVE_INFINITY);
+		int[] bounds = Kmeans.calculatePartitionBounds(size);
+		int partitions = bounds.length-1;
+		int[] partitionMinima = new int[partitions];	/**<nearest point to the tree, per partition (-1 if none)*/
+		double[] values = dataset.getValues();
+		int dimensions = dataset.getDimensions();
 
-	public void setRequiredClusters(int requiredClusters) {
-		this.requiredClusters = requiredClusters;
+		int newcomer=0;
+		minDistances[0]=Double.NaN;
+		for (int edge = 0; edge < edgesFrom.length; edge++) {
+			final int joined = newcomer;
+			Parallelism.getPool().submit(() -> IntStream.range(0, partitions).parallel().forEach(partition -> {
+				int minimum=-1;
+				for (int point = bounds[partition]; point < bounds[partition+1]; point++) {
+					if(Double.isNaN(minDistances[point]))
+						continue;
+					double distance = dataset.getKernel().squareDistance(values, point*dimensions, values, joined*dimensions, dimensions);
+					if(distance<minDistances[point]) {
+						minDistances[point]=distance;
+						nearest[point]=joined;
+					}
+					if(minimum<0 || minDistances[point]<minDistances[minimum]) {
+						minimum=point;
+					}
+				}
+				partitionMinima[partition]=minimum;
+			})).join();
+			newcomer=-1;
+			for (int minimum : partitionMinima) {
+				if(minimum>=0 && (newcomer<0 || minDistances[minimum]<minDistances[newcomer])) {
+					newcomer=minimum;
+				}
+			}
+			edgesFrom[edge]=nearest[newcomer];
+			edgesTo[edge]=newcomer;
+			lengths[edge]=minDistances[newcomer];
+			minDistances[newcomer]=Double.NaN;
+		}
 	}
-	
-//	public static void main(String[] args) {
-//		PriorityQueue<EdgeVo> sortedEdges = new PriorityQueue<EdgeVo>(2, new EdgeComparator());
-//		sortedEdges.add(new EdgeVo(2.0,-100,3));
-//		sortedEdges.add(new EdgeVo(1.0,1,2));
-//		sortedEdges.add(new EdgeVo(3.0,1,4));
-//		sortedEdges.add(new EdgeVo(2.0,2,3));
-//		sortedEdges.add(new EdgeVo(2.0,2,4));
-//		sortedEdges.add(new EdgeVo(1.0,4,4));
-//		for (int i = 0; i < 6; i++) {
-//			System.out.println(sortedEdges.poll());
-//		}
-//	}
-
-	
-	
-	
 }
@@ -1,25 +1,41 @@
 package com.khetanshu.machinelearning.clustering.main;
 
-import java.util.HashMap;
-import java.util.List;
+import java.io.File;
+import java.io.IOException;
 import java.util.Map;
 
 import com.khetanshu.corelib.CSVReader;
+import com.khetanshu.corelib.DistanceKernels;
+import com.khetanshu.machinelearning.clustering.algos.ElbowMethod;
+import com.khetanshu.machinelearning.clustering.algos.IncrementalKmeans;
 import com.khetanshu.machinelearning.clustering.algos.Kmeans;
+import com.khetanshu.machinelearning.clustering.algos.KmeansCoreset;
+import com.khetanshu.machinelearning.clustering.algos.KmeansModel;
+import com.khetanshu.machinelearning.clustering.algos.KmeansRestarts;
 import com.khetanshu.machinelearning.clustering.algos.Linkage;
+import com.khetanshu.machinelearning.clustering.util.BinaryDatasetFile;
+import com.khetanshu.machinelearning.clustering.util.BinaryModelFile;
 import com.khetanshu.machinelearning.clustering.util.CONSTANTS;
+import com.khetanshu.machinelearning.clustering.util.DendrogramFile;
 import com.khetanshu.machinelearning.clustering.util.Initializer;
+import com.khetanshu.machinelearning.clustering.util.Parallelism;
+import com.khetanshu.machinelearning.clustering.vo.Dataset;
+import com.khetanshu.machinelearning.clustering.vo.MergeHistory;
 import com.khetanshu.machinelearning.clustering.vo.Point;
-import com.khetanshu.machinelearning.clustering.vo.RawData;
 
 /**
  * FUNCTIONALITIES IMPLEMENTED:
  * 1. Clustering algorithm 
  * 		1. LLYODS
  * 		2. KMEAN ++ 
+ * 			(iterations by Lloyd's, by Elkan's/Hamerly's triangle inequality acceleration or by KD-tree filtering)
+ * 		   or MINI BATCH (random batches per iteration, for the datasets too large for full passes)
+ * 		   or BISECTING (repeated 2-means splits, for large k)
+ * 		   (optionally fitted on a weighted coreset of the points, for very large inputs)
  * 		3. SINGLE LINKAGE
  * 		4. COMPLETE LINKAGE
  * 		5. AVERAGE LINKAGE
+ * 		6. WARD, CENTROID & MEDIAN LINKAGE (any of the linkages chosen by LINKAGE_TYPES)
  * 2. EVALUTION METRIC 
  * 		1. HAMMING DISTANCE
  * 		2. SILHOUETTE SCORE
@@ -27,24 +43,26 @@ import com.khetanshu.machinelearning.clustering.vo.RawData;
  *
  * DATA STRUCTURE USED:
  * 1. Disjoint Sets
- * 2. Priority Queue
+ * 2. Indexed Min-Heap (closest pair of the centroid & median linkage)
  * 3. Hash-Map
- * 4. Hash-Set
- * 5. Stack
- * 6. Graph
- * 7. Linked List
+ * 4. Sorted Set (clusters by SSE of the bisecting k-means)
+ * 5. Array (row-major dataset, condensed distance matrix, nearest neighbour chain)
+ * 6. Linked List
+ * 7. Fork-Join Pool
  * 
  * ASYMPTOTIC COMPLEXITY(Worst case):
  * The the complexities of the algorithm are highly optimized 
- * Single Linkage 					: 𝑶(𝒎+𝒏)  				{Normal approach 𝑂(𝑛^3)}
- * Complete & Average Linkage 		: 𝑶(𝒎.𝒍𝒈⁡(𝒏))				{Normal approach 𝑂(𝑛^4.lg⁡(𝑛))} 
+ * Single Linkage 					: O(n^2 * d / p) time, O(n) space		{Prim's MST, no distance matrix}
+ * Complete, Average & Ward Linkage	: O(n^2) time, O(n^2) space			{nearest neighbour chain}
+ * Centroid & Median Linkage		: O(n^3) time [O(n^2) in practice], O(n^2) space	{closest pair by an indexed min-heap}
+ * > the matrix linkages run over the condensed (upper triangle) distance matrix, whereas a naive approach using the
+ *   2D matrix would lead to O(n^3)
  * Lloyd’s							: 𝑂(𝑛 ∗𝑘 ∗ 𝑑)
  * Kmean++							: 𝑂(𝑛 ∗𝑘 ∗ 𝑑 + lg⁡(𝑘))
  * 
  * 
  * where,
- * n : # of point ,  k : number of clusters,  d : number of attributes
- * m : # of edges → 𝑶(𝒏(𝒏−𝟏)/𝟐) → 𝑶(𝒏^𝟐)  [This could be optimized further by pre-processing and parallelism]
+ * n : # of point ,  k : number of clusters,  d : number of attributes, p : parallelism
  */
 public class ClusteringAlgorithms {
 	public static int NO_OF_CLUSTERS;
@@ -52,105 +70,172 @@ public class ClusteringAlgorithms {
 	public static boolean DEBUG_MODE;
 	public static boolean PRINT_CLUSTER_POINTS;
 	public static boolean PRINT_SILHOUETTE_SCORE;
-
-	public Map<Integer, Point> extractPoints(List<String[]> data, int headerIndex){
-		Map<Integer, Point> points = new HashMap<>();
-		int pointID=0;
-		for (int i = headerIndex+1; i < data.size(); i++) {
-			Map<Integer,Double> dimensions= new HashMap<>();
-			for (int j = 0; j < data.get(headerIndex).length; j++) {
-				dimensions.put(j, Double.valueOf(data.get(i)[j]));
-			}
-			points.put(pointID++, new Point(dimensions,-1));
-		}
-		return points;
-	}
+	public static boolean USE_BINARY_CACHE;
+	public static String MODEL_OUTPUT_DIRECTORY;
+	public static String INCREMENTAL_MODEL_FILE;
+	public static double INCREMENTAL_DRIFT_THRESHOLD=0.1;
+	public static int INCREMENTAL_MAX_ITERATIONS=10;
+	public static int ELBOW_MIN_CLUSTERS=1;
+	public static int ELBOW_MAX_CLUSTERS=20;
+	public static boolean ELBOW_WARM_START;
+	public static boolean ELBOW_SILHOUETTE;
+	public static boolean USE_VECTOR_API=true;
+	public static int PARALLELISM;
+	public static Long RANDOM_SEED;
+	public static int KMEANS_ENGINE=CONSTANTS.KMEANS_PLUS_PLUS;
+	public static int KMEANS_SEEDING=CONSTANTS.KMEANS_PLUS_PLUS;
+	public static int KMEANS_PARALLEL_ROUNDS=5;
+	public static int KMEANS_MAX_ITERATIONS=300;
+	public static double KMEANS_SHIFT_TOLERANCE=0;
+	public static double KMEANS_INERTIA_TOLERANCE=0;
+	public static int KMEANS_RESTARTS=1;
+	public static double KMEANS_RESTART_CANCEL_RATIO=1.5;
+	public static int MINI_BATCH_SIZE=1024;
+	public static int MINI_BATCH_MAX_ITERATIONS=300;
+	public static double MINI_BATCH_TOLERANCE=1e-4;
+	public static boolean BISECTING_REFINE;
+	public static int KMEANS_CORESET_SIZE;
+	public static String KMEANS_CORESET_OUTPUT;
+	public static int[] LINKAGE_TYPES={CONSTANTS.SINGLE_LINKAGE, CONSTANTS.COMPLETE_LINKAGE, CONSTANTS.AVERAGE_LINKAGE};
+	public static boolean LINKAGE_FLOAT_MATRIX;
+	public static Double LINKAGE_CUT_HEIGHT;
+	public static String LINKAGE_MERGES_FILE;
 
 	public static void main(String[] args) {
 		ClusteringAlgorithms obj= new ClusteringAlgorithms();
 		Initializer.initialize("config/config.properties");
-		List<String[]> data= CSVReader.readCSV(INPUT_RELATIVE_FILENAME);
-		/*Ignore the first row as it would just contain the names of the attribute but in the second row we 
-		 * would have its ID in integer*/
-		RawData rawData = obj.extractPoints(data, CONSTANTS.FIRST_ROW,CONSTANTS.LAST_COLUMN);
+		DistanceKernels.setPreferVector(USE_VECTOR_API);
+		if(DEBUG_MODE) {
+			System.out.println("Distance kernel: "+DistanceKernels.getInstance().getName());
+		}
+		/**Coreset mode : the input is streamed into a coreset saved for later runs*/
+		if(KMEANS_CORESET_OUTPUT!=null && KMEANS_CORESET_SIZE>0) {
+			obj.buildCoreset(INPUT_RELATIVE_FILENAME, KMEANS_CORESET_SIZE, KMEANS_CORESET_OUTPUT);
+			return;
+		}
+		Dataset points = obj.loadDataset(INPUT_RELATIVE_FILENAME);
 
-		Map<Integer, Point> points = rawData.getPoints();
-		Map<Integer, Point> pointsCopy;
 		Map<Integer, Point> updatedPoints;
 
+		/**Incremental mode : only the rows appended since the saved model are clustered*/
+		if(INCREMENTAL_MODEL_FILE!=null) {
+			obj.updateModelIncrementally(points, NO_OF_CLUSTERS, INCREMENTAL_MODEL_FILE);
+			return;
+		}
+
+		/**Dendrogram mode : the merges saved by an earlier linkage run are only cut again, at another k or height*/
+		if(LINKAGE_MERGES_FILE!=null) {
+			updatedPoints= obj.cutSavedDendrogram(points, NO_OF_CLUSTERS, LINKAGE_MERGES_FILE);
+			if(updatedPoints!=null) {
+				System.out.printf("\n%s %.3f\n","~Hammming Distance = ",obj.getHammingDistance(points, updatedPoints));
+			}
+			return;
+		}
+
 		/**if totalCluster(i.e. k) = -1 then we need to find the value of K using the elbow method*/
 		if(NO_OF_CLUSTERS==-1) {
 			NO_OF_CLUSTERS =obj.findNoOfClusterUsingElbowMethod(points);
-		}else {
-
-			System.out.printf("\n%10s%s%10s\n","########","LLYODS Output","########");
-			updatedPoints= obj.findClustersUsing_LloydsAlgorithm(points, NO_OF_CLUSTERS,CONSTANTS.LLOYDS);
-			System.out.printf("\n%s %.3f\n","~Hammming Distance = ", obj.getHammingDistance(rawData.getPointToClassMap(), updatedPoints));
-			
-			System.out.printf("\n%10s%s%10s\n","########","KMEAN++ Output","########");
-			updatedPoints= obj.findClustersUsing_LloydsAlgorithm(points, NO_OF_CLUSTERS,CONSTANTS.KMEANS_PLUS_PLUS);
-			System.out.printf("%s %.3f\n","~Hammming Distance = ", obj.getHammingDistance(rawData.getPointToClassMap(), updatedPoints));
-			
-			System.out.printf("\n%10s%s%10s\n","########","Single Linkage Output","########");
-			updatedPoints= obj.findClustersUsing_LinkageAlgorithm(points, NO_OF_CLUSTERS, CONSTANTS.SINGLE_LINKAGE);
-			System.out.printf("\n%s %.3f\n","~Hammming Distance = ",obj.getHammingDistance(rawData.getPointToClassMap(), updatedPoints));
-
-			System.out.printf("\n%10s%s%10s\n","########","Complete Linkage Output","########");
-			updatedPoints= obj.findClustersUsing_LinkageAlgorithm(points, NO_OF_CLUSTERS, CONSTANTS.COMPLETE_LINKAGE);
-			System.out.printf("\n%s %.3f\n","~Hammming Distance = ", obj.getHammingDistance(rawData.getPointToClassMap(), updatedPoints));
-			
-			System.out.printf("\n%10s%s%10s\n","########","Average Linkage Output","########");
-			updatedPoints= obj.findClustersUsing_LinkageAlgorithm(points, NO_OF_CLUSTERS, CONSTANTS.AVERAGE_LINKAGE);
-			System.out.printf("\n%s %.3f\n","~Hammming Distance = ", obj.getHammingDistance(rawData.getPointToClassMap(), updatedPoints));
-
-		}
-	}
-
-	public RawData extractPoints(List<String[]> data, int headerIndex, int predefinedClassIndex){
-		RawData rawData = new RawData();
-		Map<Integer, Point> points = rawData.getPoints();
-		Map<Integer,Integer> pointToClassMap= rawData.getPointToClassMap();
-		int pointID=0;
-		if(predefinedClassIndex==CONSTANTS.LAST_COLUMN) {
-			predefinedClassIndex=data.get(CONSTANTS.FIRST_ROW).length-1;
-		}
-		for (int i = headerIndex+1; i < data.size(); i++) {
-			Map<Integer,Double> dimensions= new HashMap<>();
-			for (int j = 0; j < data.get(headerIndex).length; j++) {
-				if(j==predefinedClassIndex) {
-					pointToClassMap.put(pointID, Integer.valueOf(data.get(i)[j]));
-				}else {
-					dimensions.put(j, Double.valueOf(data.get(i)[j]));
-				}
+		}
+
+		System.out.printf("\n%10s%s%10s\n","########","LLYODS Output","########");
+		updatedPoints= obj.findClustersUsing_LloydsAlgorithm(points, NO_OF_CLUSTERS,CONSTANTS.LLOYDS);
+		System.out.printf("\n%s %.3f\n","~Hammming Distance = ", obj.getHammingDistance(points, updatedPoints));
+		
+		System.out.printf("\n%10s%s%10s\n","########","KMEAN++ Output","########");
+		updatedPoints= obj.findClustersUsing_LloydsAlgorithm(points, NO_OF_CLUSTERS,KMEANS_ENGINE);
+		System.out.printf("%s %.3f\n","~Hammming Distance = ", obj.getHammingDistance(points, updatedPoints));
+		
+		for (int linkageType : LINKAGE_TYPES) {
+			System.out.printf("\n%10s%s%10s\n","########",getLinkageName(linkageType)+" Linkage Output","########");
+			updatedPoints= obj.findClustersUsing_LinkageAlgorithm(points, NO_OF_CLUSTERS, linkageType);
+			System.out.printf("\n%s %.3f\n","~Hammming Distance = ",obj.getHammingDistance(points, updatedPoints));
+		}
+	}
+
+	private static String getLinkageName(int linkageType) {
+		switch(linkageType) {
+		case CONSTANTS.SINGLE_LINKAGE:
+			return "Single";
+		case CONSTANTS.COMPLETE_LINKAGE:
+			return "Complete";
+		case CONSTANTS.AVERAGE_LINKAGE:
+			return "Average";
+		case CONSTANTS.WARD_LINKAGE:
+			return "Ward";
+		case CONSTANTS.CENTROID_LINKAGE:
+			return "Centroid";
+		case CONSTANTS.MEDIAN_LINKAGE:
+			return "Median";
+		default:
+			throw new IllegalArgumentException("Unknown linkage type "+linkageType);
+		}
+	}
+
+	/**
+	 * Loads the input either from 
+	 * - the binary dataset file (memory mapped) if the input itself is one, or if USE_BINARY_CACHE is set and the 
+	 *   binary copy of the csv (e.g. data/irish.bin) is up to date; the binary copy would be written on the first run
+	 * - else by parsing the csv
+	 */
+	public Dataset loadDataset(String fileName) {
+		try {
+			if(BinaryDatasetFile.isBinaryDataset(fileName)) {
+				return BinaryDatasetFile.read(fileName);
 			}
-			points.put(pointID++, new Point(dimensions,-1));
+			File binaryFile = new File(BinaryDatasetFile.toBinaryFileName(fileName));
+			if(USE_BINARY_CACHE && binaryFile.lastModified()>new File(fileName).lastModified()
+					&& BinaryDatasetFile.isBinaryDataset(binaryFile.getPath())) {
+				return BinaryDatasetFile.read(binaryFile.getPath());
+			}
+			/*The last column would contain the predefined class of the point*/
+			Dataset dataset = extractPoints(fileName, CONSTANTS.LAST_COLUMN);
+			if(USE_BINARY_CACHE) {
+				BinaryDatasetFile.write(dataset, binaryFile.getPath(), BinaryDatasetFile.FLOAT64);
+			}
+			return dataset;
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(1);
+			return null;
 		}
-		return rawData;
 	}
 
-	public Double getHammingDistance(Map<Integer,Integer> pointToClassMap, Map<Integer, Point> points) {
-		Double hammingDistance = new Double(0);
+	/**
+	 * The csv is parsed in parallel chunks and the attributes are written straight into the row-major {@link Dataset} 
+	 * and the predefined class (if any) into its label column, so no per line/per value objects are created.
+	 * The header row is detected (i.e. skipped iff it isn't numeric)
+	 */
+	public Dataset extractPoints(String csvFileName, int predefinedClassIndex) throws IOException {
+		CSVReader reader = CSVReader.readCSV(csvFileName, predefinedClassIndex, Parallelism.getPool());
+		return new Dataset(reader.getRows(), reader.getDimensions(), reader.getValues(), reader.getLabels());
+	}
+
+	public Double getHammingDistance(Dataset dataset, Map<Integer, Point> points) {
+		Double hammingDistance = Double.valueOf(0);
 		/**
-		 * "pointToClassMap" would contain the mapping of the points and cluster giving the raw data {Lets call its C}
+		 * "dataset" labels would contain the mapping of the points and cluster giving the raw data {Lets call its C}
 		 * "points" would contain the new mapping between each points and its new assigned cluster to which it belongs {Lets call its C'}
 		 */
-		Long missedEdges = new Long(0);
-		Long totalEdges=new Long(0);
-		for (int pointA = 0; pointA < points.size(); pointA++) {
-			for (int pointB = pointA+1; pointB < points.size(); pointB++) {
+		int[] labels = dataset.getLabels();
+		int[] assignedClusters = new int[points.size()];
+		for (int pointId = 0; pointId < assignedClusters.length; pointId++) {
+			assignedClusters[pointId]=points.get(pointId).getAssignedCluster();
+		}
+		long missedEdges = 0;
+		long totalEdges=0;
+		for (int pointA = 0; pointA < assignedClusters.length; pointA++) {
+			for (int pointB = pointA+1; pointB < assignedClusters.length; pointB++) {
 				/** find if i and j are in any cluster of C, if not found then find in C'*/
-				if(pointToClassMap.get(pointA)==pointToClassMap.get(pointB)) {
+				if(labels[pointA]==labels[pointB]) {
 					/** i.e. both point A and B are in same cluster in C
 					 * 	Now check if its present in any cluster of C'; if not then increase the count*/
-					if(points.get(pointA).getAssignedCluster()!=points.get(pointB).getAssignedCluster()) {
+					if(assignedClusters[pointA]!=assignedClusters[pointB]) {
 						missedEdges++;
 					}
-				}else if(points.get(pointA).getAssignedCluster()==points.get(pointB).getAssignedCluster()) {
+				}else if(assignedClusters[pointA]==assignedClusters[pointB]) {
 					/** i.e. both point A and B are in same cluster in C'
 					 * 	Now check if its present in any cluster of C; if not then increase the count*/
-					if(pointToClassMap.get(pointA)!=pointToClassMap.get(pointB)) {
-						missedEdges++;
-					}
+					missedEdges++;
 				}
 				totalEdges++;
 			}
@@ -159,34 +244,159 @@ public class ClusteringAlgorithms {
 		return hammingDistance;
 	}
 
-	public Map<Integer, Point> findClustersUsing_LloydsAlgorithm(Map<Integer, Point> points,int requiredClusters, int type) {
-		Kmeans kmeans = new Kmeans(points, requiredClusters,type);
-		return kmeans.findClusters();
+	/** @param type = {LLOYDS, KMEANS_PLUS_PLUS, ELKAN, HAMERLY, MINI_BATCH, KD_TREE, BISECTING}*/
+	public Map<Integer, Point> findClustersUsing_LloydsAlgorithm(Dataset points,int requiredClusters, int type) {
+		Kmeans kmeans = fitKmeans(points, requiredClusters, type);
+		if(MODEL_OUTPUT_DIRECTORY!=null) {
+			saveModel(kmeans.getModel(), "kmeans-"+type+".model");
+		}
+		return kmeans.reportClusters();
 	}
 
+	/** Fits k-means (as {@link #findClustersUsing_LloydsAlgorithm}, without printing the clusters)
+	 * @return the trained model to predict the cluster of new points*/
+	public KmeansModel trainKmeansModel(Dataset points,int requiredClusters, int type) {
+		return fitKmeans(points, requiredClusters, type).getModel();
+	}
 
-	public Map<Integer, Point> findClustersUsing_LinkageAlgorithm(Map<Integer, Point> points,int requiredClusters, int linkageType) {
-		Linkage linkage= new Linkage(points, requiredClusters,linkageType);
-		return linkage.findClusters();
+	private Kmeans fitKmeans(Dataset points,int requiredClusters, int type) {
+		if(KMEANS_CORESET_SIZE>0 && points.getSize()>KMEANS_CORESET_SIZE) {
+			Dataset coreset = new KmeansCoreset(KMEANS_CORESET_SIZE).reduce(points);
+			Kmeans fitted = fitKmeans(coreset, requiredClusters, type);
+			/**One Lloyd's pass over all the points, from the centroids fitted on the coreset*/
+			Kmeans kmeans = Kmeans.newInstance(points, requiredClusters, CONSTANTS.LLOYDS, fitted.getCentroids());
+			kmeans.setMaxIterations(1);
+			kmeans.fit();
+			return kmeans;
+		}
+		if(KMEANS_RESTARTS>1) {
+			/**Best of several concurrent runs*/
+			return new KmeansRestarts(points, requiredClusters, type, KMEANS_RESTARTS).findBest();
+		}
+		Kmeans kmeans = Kmeans.newInstance(points, requiredClusters,type);
+		kmeans.fit();
+		return kmeans;
 	}
 
-	private int findNoOfClusterUsingElbowMethod(Map<Integer, Point> points) {
-		double aggregateCost=0.0;
-		double previousCost = 0.0;
-		for (int k = 1; k <= 20; k++) {
-			Kmeans kmeans = new Kmeans(points, k,CONSTANTS.KMEANS_PLUS_PLUS);
-			kmeans.findClusters();
-			aggregateCost=kmeans.calculateAggregateClusteringCost();
-			//			aggregateCost=Math.sqrt(Math.sqrt(aggregateCost));
-			System.out.printf("K= %2d -> aggregate Kmean cost= %.3f, Decline= %.3f\n",k, aggregateCost, previousCost-aggregateCost);
-			previousCost=aggregateCost;
-			System.out.println(aggregateCost);
+	/**
+	 * Updates the k-means model saved in the file with the rows of the dataset appended since it was saved (see
+	 * {@link IncrementalKmeans}), or trains it on all the rows (KMEANS_ENGINE) if the file doesn't exist yet;
+	 * the model is saved back into the file
+	 */
+	public KmeansModel updateModelIncrementally(Dataset points, int requiredClusters, String modelFileName) {
+		try {
+			KmeansModel model;
+			if(new File(modelFileName).isFile()) {
+				model = BinaryModelFile.readKmeansModel(modelFileName);
+				IncrementalKmeans incrementalKmeans = new IncrementalKmeans(model);
+				long trainedRows = model.getTrainedRows();
+				model = incrementalKmeans.update(points);
+				System.out.printf("Ingested %d new rows (drift=%.4f) : %s\n", Math.max(0, points.getSize()-trainedRows),
+						incrementalKmeans.getDrift(), incrementalKmeans.hasReclustered()?
+								"re-clustered in "+incrementalKmeans.getIterations()+" iterations":"centroids updated");
+			}else {
+				model = trainKmeansModel(points, requiredClusters, KMEANS_ENGINE);
+				System.out.printf("Trained on %d rows\n", points.getSize());
+			}
+			BinaryModelFile.write(model, modelFileName);
+			return model;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
 		}
-		return 0;
 	}
 
+	/**
+	 * Streams the csv (the last column as the predefined class) into a coreset of at most "coresetSize" weighted points
+	 * (see {@link KmeansCoreset}), in one pass without loading it, and saves it as a binary dataset
+	 * @return the coreset
+	 */
+	public Dataset buildCoreset(String csvFileName, int coresetSize, String coresetFileName) {
+		try {
+			long start = System.nanoTime();
+			Dataset coreset = KmeansCoreset.build(csvFileName, CONSTANTS.LAST_COLUMN, coresetSize,
+					RANDOM_SEED!=null?RANDOM_SEED:System.nanoTime());
+			BinaryDatasetFile.write(coreset, coresetFileName, BinaryDatasetFile.FLOAT64);
+			System.out.printf("%s -> coreset of %d points weighing %.0f in total -> %s (%.1f ms)\n", csvFileName,
+					coreset.getSize(), coreset.getTotalWeight(), coresetFileName, (System.nanoTime()-start)/1e6);
+			return coreset;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
 
+	public Map<Integer, Point> findClustersUsing_LinkageAlgorithm(Dataset points,int requiredClusters, int linkageType) {
+		Linkage linkage= new Linkage(points, requiredClusters,linkageType);
+		linkage.setCutHeight(LINKAGE_CUT_HEIGHT);
+		Map<Integer, Point> clusters = linkage.findClusters();
+		if(MODEL_OUTPUT_DIRECTORY!=null) {
+			saveMergeHistory(linkage.getMergeHistory(), "linkage-"+linkageType);
+		}
+		return clusters;
+	}
 
+	/**
+	 * Cuts the merges saved by an earlier linkage run (the binary linkage-<type>.merges) over the same points, at the
+	 * required # of clusters or at LINKAGE_CUT_HEIGHT if set, without running the linkage again
+	 * @return the points with their clusters, null if the file can't be read
+	 */
+	public Map<Integer, Point> cutSavedDendrogram(Dataset points, int requiredClusters, String mergesFileName) {
+		try {
+			MergeHistory mergeHistory = BinaryModelFile.readMergeHistory(mergesFileName);
+			System.out.printf("\n%10s%s%10s\n","########",getLinkageName(mergeHistory.getLinkageType())+" Linkage Output","########");
+			Linkage linkage = new Linkage(points, mergeHistory, requiredClusters);
+			linkage.setCutHeight(LINKAGE_CUT_HEIGHT);
+			Map<Integer, Point> clusters = linkage.findClusters();
+			if(LINKAGE_CUT_HEIGHT!=null) {
+				System.out.printf("%d clusters at the height %s\n", clusters.values().stream().mapToInt(Point::getAssignedCluster)
+						.max().orElse(0), LINKAGE_CUT_HEIGHT);
+			}
+			return clusters;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**Saves the k-means model (binary) into the MODEL_OUTPUT_DIRECTORY*/
+	private void saveModel(KmeansModel model, String fileName) {
+		try {
+			File file = getOutputFile(fileName);
+			BinaryModelFile.write(model, file.getPath());
+			if(DEBUG_MODE) {
+				System.out.println("Saved "+file.getPath());
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
 
+	/**Saves the linkage merge history into the MODEL_OUTPUT_DIRECTORY, as <baseName>.merges (binary, to be cut again by
+	 * {@link #cutSavedDendrogram}) and as the csv dendrogram <baseName>.csv (for the other tools)*/
+	private void saveMergeHistory(MergeHistory history, String baseName) {
+		try {
+			File mergesFile = getOutputFile(baseName+".merges");
+			BinaryModelFile.write(history, mergesFile.getPath());
+			File csvFile = getOutputFile(baseName+".csv");
+			DendrogramFile.writeCsv(history, csvFile.getPath());
+			if(DEBUG_MODE) {
+				System.out.println("Saved "+mergesFile.getPath()+" and "+csvFile.getPath());
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
 
+	/** @return the file in the MODEL_OUTPUT_DIRECTORY, the directory being created if needed*/
+	private File getOutputFile(String fileName) {
+		File file = new File(MODEL_OUTPUT_DIRECTORY, fileName);
+		file.getParentFile().mkdirs();
+		return file;
+	}
+
+	/** @return the k at the knee of the k-means cost curve over k = {ELBOW_MIN_CLUSTERS..ELBOW_MAX_CLUSTERS}*/
+	public int findNoOfClusterUsingElbowMethod(Dataset points) {
+		return new ElbowMethod(points, KMEANS_ENGINE).findNoOfClusters();
+	}
 }
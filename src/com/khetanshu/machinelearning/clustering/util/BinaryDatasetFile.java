@@ -0,0 +1,246 @@
+package com.khetanshu.machinelearning.clustering.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import com.khetanshu.machinelearning.clustering.main.ClusteringAlgorithms;
+import com.khetanshu.machinelearning.clustering.vo.Dataset;
+
+/**
+ * Compact binary (columnar) file format of a {@link Dataset} which is read back through FileChannel.map
+ * i.e. the body is copied in bulk from the mapped pages straight into the primitive arrays, no text is parsed.
+ *
+ * NOTE: it's a full load, NOT a zero-copy view of the file: the mapped pages are copied into heap arrays (and the
+ * FLOAT32 values widened to doubles) because the {@link Dataset} and everything over it (the distance kernels, incl.
+ * the SIMD one, the engines, the model) work on a writable double[] (see Dataset.setValue). Backing the dataset by
+ * the mapped buffers would take that abstraction to be changed first; until then the file saves the parsing (and half
+ * the size with FLOAT32), not the memory.
+ *
+ * FILE LAYOUT (little endian, header of 32 bytes so that the body is 8 byte aligned):
+ * [0 ]  int  magic		= "KDS1"
+ * [4 ]  int  version	= 1
+ * [8 ]  int  dtype		= FLOAT64 | FLOAT32
+ * [12]  int  flags		= HAS_LABELS (bit 0) | HAS_WEIGHTS (bit 1)
+ * [16]  long n			= # of points
+ * [24]  int  d			= # of attributes
+ * [28]  int  reserved
+ * [32]  n*d values of "dtype" in row-major order
+ * [..]  n int labels (iff HAS_LABELS)
+ * [..]  n double weights (iff HAS_WEIGHTS, e.g. of a coreset)
+ *
+ * Usage (one shot converter) : BinaryDatasetFile data/irish.csv data/seed.csv ...
+ * would write data/irish.bin, data/seed.bin ...
+ */
+public class BinaryDatasetFile {
+	public static final int MAGIC=0x4B445331;
+	public static final int VERSION=1;
+	public static final int FLOAT64=0;
+	public static final int FLOAT32=1;
+	public static final int HAS_LABELS=1;
+	public static final int HAS_WEIGHTS=2;
+	public static final int HEADER_SIZE=32;
+	public static final String EXTENSION=".bin";
+	/**Max bytes mapped at once (a MappedByteBuffer can't exceed 2GB), multiple of 8 so that no value is split*/
+	private static final long MAX_MAPPED_REGION=1L<<30;
+
+	public static boolean isBinaryDataset(String fileName) {
+		File file = new File(fileName);
+		if(!file.isFile() || file.length()<HEADER_SIZE)
+			return false;
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)){
+			ByteBuffer header = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+			channel.read(header, 0);
+			return header.getInt(0)==MAGIC;
+		}catch(IOException e) {
+			return false;
+		}
+	}
+
+	/**@return the name of the binary file corresponding to the csv i.e. "data/irish.csv" -> "data/irish.bin"*/
+	public static String toBinaryFileName(String csvFileName) {
+		int extensionIndex = csvFileName.lastIndexOf('.');
+		if(extensionIndex>csvFileName.lastIndexOf(File.separatorChar)) {
+			return csvFileName.substring(0, extensionIndex)+EXTENSION;
+		}
+		return csvFileName+EXTENSION;
+	}
+
+	public static Dataset read(String fileName) throws IOException {
+		try(FileChannel channel = FileChannel.open(new File(fileName).toPath(), StandardOpenOption.READ)){
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			if(header.getInt(0)!=MAGIC) {
+				throw new IOException(fileName+" is not a binary dataset");
+			}
+			if(header.getInt(4)!=VERSION) {
+				throw new IOException(fileName+" has an unsupported version "+header.getInt(4));
+			}
+			int dtype=header.getInt(8);
+			int flags=header.getInt(12);
+			boolean hasLabels=(flags&HAS_LABELS)!=0;
+			boolean hasWeights=(flags&HAS_WEIGHTS)!=0;
+			long size=header.getLong(16);
+			int dimensions=header.getInt(24);
+			if(dtype!=FLOAT64 && dtype!=FLOAT32) {
+				throw new IOException(fileName+" has an unknown dtype "+dtype);
+			}
+			if((flags&~(HAS_LABELS|HAS_WEIGHTS))!=0) {
+				throw new IOException(fileName+" has unknown flags "+flags);
+			}
+			if(size<0 || dimensions<0) {
+				throw new IOException(fileName+" has a negative size "+size+"x"+dimensions);
+			}
+			if(size*dimensions>Integer.MAX_VALUE-8) {
+				throw new IOException(fileName+" has "+size+"x"+dimensions+" values which can't be held in one array");
+			}
+			int valueBytes = dtype==FLOAT32?4:8;
+			long expectedLength = HEADER_SIZE+size*dimensions*valueBytes+(hasLabels?size*4:0)+(hasWeights?size*8:0);
+			if(channel.size()<expectedLength) {
+				throw new IOException(fileName+" is truncated, expected "+expectedLength+" bytes but found "+channel.size());
+			}
+			if(channel.size()>expectedLength) {
+				throw new IOException(fileName+" has "+(channel.size()-expectedLength)+" bytes more than the "+expectedLength
+						+" expected for "+size+"x"+dimensions+" values");
+			}
+
+			double[] values = new double[(int)(size*dimensions)];
+			int[] labels = new int[(int)size];
+			/**Map the body region by region and copy it in bulk into the arrays*/
+			long position = HEADER_SIZE;
+			int copied=0;
+			while(copied<values.length) {
+				long remainingBytes = (long)(values.length-copied)*valueBytes;
+				MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(remainingBytes, MAX_MAPPED_REGION));
+				region.order(ByteOrder.LITTLE_ENDIAN);
+				int count = region.capacity()/valueBytes;
+				if(dtype==FLOAT32) {
+					FloatBuffer floats = region.asFloatBuffer();
+					for (int i = 0; i < count; i++) {
+						values[copied+i]=floats.get(i);
+					}
+				}else {
+					DoubleBuffer doubles = region.asDoubleBuffer();
+					doubles.get(values, copied, count);
+				}
+				copied+=count;
+				position+=(long)count*valueBytes;
+			}
+			if(hasLabels) {
+				copied=0;
+				while(copied<labels.length) {
+					long remainingBytes = (long)(labels.length-copied)*4;
+					MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(remainingBytes, MAX_MAPPED_REGION));
+					IntBuffer ints = region.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+					int count = ints.capacity();
+					ints.get(labels, copied, count);
+					copied+=count;
+					position+=(long)count*4;
+				}
+			}else {
+				Arrays.fill(labels, Dataset.NO_LABEL);
+			}
+			double[] weights=null;
+			if(hasWeights) {
+				weights = new double[(int)size];
+				copied=0;
+				while(copied<weights.length) {
+					long remainingBytes = (long)(weights.length-copied)*8;
+					MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(remainingBytes, MAX_MAPPED_REGION));
+					DoubleBuffer doubles = region.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+					int count = doubles.capacity();
+					doubles.get(weights, copied, count);
+					copied+=count;
+					position+=(long)count*8;
+				}
+			}
+			return new Dataset((int)size, dimensions, values, labels, weights);
+		}
+	}
+
+	public static void write(Dataset dataset, String fileName, int dtype) throws IOException {
+		if(dtype!=FLOAT64 && dtype!=FLOAT32) {
+			throw new IllegalArgumentException("Unknown dtype "+dtype);
+		}
+		boolean hasLabels = dataset.hasLabels();
+		try(FileChannel channel = FileChannel.open(new File(fileName).toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)){
+			ByteBuffer buffer = ByteBuffer.allocateDirect(1<<20).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(MAGIC).putInt(VERSION).putInt(dtype).putInt((hasLabels?HAS_LABELS:0)|(dataset.isWeighted()?HAS_WEIGHTS:0))
+			.putLong(dataset.getSize()).putInt(dataset.getDimensions()).putInt(0);
+
+			double[] values = dataset.getValues();
+			int totalValues = dataset.getSize()*dataset.getDimensions();
+			for (int i = 0; i < totalValues; i++) {
+				if(buffer.remaining()<8) {
+					flush(channel, buffer);
+				}
+				if(dtype==FLOAT32) {
+					buffer.putFloat((float)values[i]);
+				}else {
+					buffer.putDouble(values[i]);
+				}
+			}
+			if(hasLabels) {
+				for (int i = 0; i < dataset.getSize(); i++) {
+					if(buffer.remaining()<4) {
+						flush(channel, buffer);
+					}
+					buffer.putInt(dataset.getLabel(i));
+				}
+			}
+			if(dataset.isWeighted()) {
+				for (int i = 0; i < dataset.getSize(); i++) {
+					if(buffer.remaining()<8) {
+						flush(channel, buffer);
+					}
+					buffer.putDouble(dataset.getWeight(i));
+				}
+			}
+			flush(channel, buffer);
+		}
+	}
+
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Converts the csv file (the last column as the predefined class; same as ClusteringAlgorithms.main) 
+	 * into the binary format
+	 * @return the name of the binary file written
+	 */
+	public static String convert(String csvFileName) throws IOException {
+		Dataset dataset = new ClusteringAlgorithms().extractPoints(csvFileName, CONSTANTS.LAST_COLUMN);
+		String binaryFileName = toBinaryFileName(csvFileName);
+		write(dataset, binaryFileName, FLOAT64);
+		return binaryFileName;
+	}
+
+	public static void main(String[] args) {
+		if(args.length==0) {
+			System.out.println("Usage: BinaryDatasetFile <csv file> [<csv file> ...]");
+			return;
+		}
+		for (String csvFileName : args) {
+			try {
+				long start = System.nanoTime();
+				String binaryFileName = convert(csvFileName);
+				System.out.printf("%s -> %s (%.1f ms)\n", csvFileName, binaryFileName, (System.nanoTime()-start)/1e6);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+}
@@ -0,0 +1,154 @@
+package com.khetanshu.machinelearning.clustering.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import com.khetanshu.machinelearning.clustering.algos.KmeansModel;
+import com.khetanshu.machinelearning.clustering.vo.MergeHistory;
+
+/**
+ * Compact binary files of the clustering results, read back through FileChannel.map (same as {@link BinaryDatasetFile})
+ * i.e. a k-means model to predict or a linkage merge history to cut at another k, without clustering again.
+ *
+ * FILE LAYOUT (little endian, header of 32 bytes so that the body is 8 byte aligned):
+ * K-means model
+ * [0 ]  int  magic		= "KKM1"
+ * [4 ]  int  version	= 2		(the version 1 had the inertia and the rows reserved, i.e. 0)
+ * [8 ]  int  k
+ * [12]  int  d
+ * [16]  double inertia
+ * [24]  long rows		= # of rows of the dataset trained on (the rows after them are the ones to ingest incrementally)
+ * [32]  k*d double centroids in row-major order
+ * [..]  k long cluster sizes
+ *
+ * Linkage merge history
+ * [0 ]  int  magic		= "KLM1"
+ * [4 ]  int  version	= 1
+ * [8 ]  int  linkage type
+ * [12]  int  m			= # of merges
+ * [16]  long n			= # of points
+ * [24]  8 bytes reserved
+ * [32]  m double heights
+ * [..]  m int left nodes, m int right nodes, m int sizes
+ */
+public class BinaryModelFile {
+	public static final int KMEANS_MAGIC=0x4B4B4D31;
+	public static final int LINKAGE_MAGIC=0x4B4C4D31;
+	public static final int KMEANS_VERSION=2;
+	public static final int LINKAGE_VERSION=1;
+	public static final int HEADER_SIZE=32;
+
+	public static void write(KmeansModel model, String fileName) throws IOException {
+		int k = model.getTotalClusters();
+		int dimensions = model.getDimensions();
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE+k*dimensions*8+k*8).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(KMEANS_MAGIC).putInt(KMEANS_VERSION).putInt(k).putInt(dimensions).putDouble(model.getInertia())
+		.putLong(model.getTrainedRows());
+		buffer.asDoubleBuffer().put(model.getCentroids());
+		buffer.position(HEADER_SIZE+k*dimensions*8);
+		buffer.asLongBuffer().put(model.getClusterSizes());
+		buffer.position(0);
+		write(buffer, fileName);
+	}
+
+	public static KmeansModel readKmeansModel(String fileName) throws IOException {
+		try(FileChannel channel = FileChannel.open(new File(fileName).toPath(), StandardOpenOption.READ)){
+			ByteBuffer header = readHeader(channel, fileName, KMEANS_MAGIC, KMEANS_VERSION);
+			int k=header.getInt(8);
+			int dimensions=header.getInt(12);
+			double inertia=header.getDouble(16);
+			long trainedRows=header.getLong(24);
+			ByteBuffer body = map(channel, fileName, (long)k*dimensions*8+k*8L);
+			double[] centroids = new double[k*dimensions];
+			long[] clusterSizes = new long[k];
+			body.asDoubleBuffer().get(centroids);
+			body.position(k*dimensions*8);
+			body.asLongBuffer().get(clusterSizes);
+			return new KmeansModel(centroids, clusterSizes, inertia, trainedRows, k, dimensions);
+		}
+	}
+
+	public static void write(MergeHistory history, String fileName) throws IOException {
+		int merges = history.getMerges();
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE+merges*(8+4*3)).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(LINKAGE_MAGIC).putInt(LINKAGE_VERSION).putInt(history.getLinkageType()).putInt(merges)
+		.putLong(history.getSize()).putLong(0);
+		for (int merge = 0; merge < merges; merge++) {
+			buffer.putDouble(history.getHeight(merge));
+		}
+		for (int merge = 0; merge < merges; merge++) {
+			buffer.putInt(history.getLeft(merge));
+		}
+		for (int merge = 0; merge < merges; merge++) {
+			buffer.putInt(history.getRight(merge));
+		}
+		for (int merge = 0; merge < merges; merge++) {
+			buffer.putInt(history.getMergedSize(merge));
+		}
+		buffer.flip();
+		write(buffer, fileName);
+	}
+
+	public static MergeHistory readMergeHistory(String fileName) throws IOException {
+		try(FileChannel channel = FileChannel.open(new File(fileName).toPath(), StandardOpenOption.READ)){
+			ByteBuffer header = readHeader(channel, fileName, LINKAGE_MAGIC, LINKAGE_VERSION);
+			int linkageType=header.getInt(8);
+			int merges=header.getInt(12);
+			long size=header.getLong(16);
+			if(size>Integer.MAX_VALUE || merges>=Math.max(1, size)) {
+				throw new IOException(fileName+" has "+merges+" merges of "+size+" points");
+			}
+			ByteBuffer body = map(channel, fileName, merges*(8L+4*3));
+			double[] heights = new double[merges];
+			int[] left = new int[merges];
+			int[] right = new int[merges];
+			int[] sizes = new int[merges];
+			body.asDoubleBuffer().get(heights);
+			body.position(merges*8);
+			body.asIntBuffer().get(left);
+			body.position(merges*12);
+			body.asIntBuffer().get(right);
+			body.position(merges*16);
+			body.asIntBuffer().get(sizes);
+			/**Room for the merges still to be added i.e. as if it was just built*/
+			int capacity = Math.max(0, (int)size-1);
+			return new MergeHistory((int)size, linkageType, Arrays.copyOf(left, capacity), Arrays.copyOf(right, capacity),
+					Arrays.copyOf(heights, capacity), Arrays.copyOf(sizes, capacity), merges);
+		}
+	}
+
+	private static ByteBuffer readHeader(FileChannel channel, String fileName, int magic, int version) throws IOException {
+		if(channel.size()<HEADER_SIZE) {
+			throw new IOException(fileName+" is truncated");
+		}
+		ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		if(header.getInt(0)!=magic) {
+			throw new IOException(fileName+" is not a "+(magic==KMEANS_MAGIC?"k-means model":"linkage merge history"));
+		}
+		if(header.getInt(4)!=version) {
+			throw new IOException(fileName+" has an unsupported version "+header.getInt(4));
+		}
+		return header;
+	}
+
+	private static ByteBuffer map(FileChannel channel, String fileName, long bodyLength) throws IOException {
+		if(bodyLength>Integer.MAX_VALUE || channel.size()<HEADER_SIZE+bodyLength) {
+			throw new IOException(fileName+" is truncated, expected "+(HEADER_SIZE+bodyLength)+" bytes but found "+channel.size());
+		}
+		return channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, bodyLength).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	private static void write(ByteBuffer buffer, String fileName) throws IOException {
+		try(FileChannel channel = FileChannel.open(new File(fileName).toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)){
+			while(buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+	}
+}
@@ -1,11 +1,23 @@
 package com.khetanshu.machinelearning.clustering.util;
 
+import com.khetanshu.corelib.CSVReader;
+
 public class CONSTANTS {
 	public static final int SINGLE_LINKAGE=0;
 	public static final int COMPLETE_LINKAGE=1;
 	public static final int AVERAGE_LINKAGE=2;
+	public static final int WARD_LINKAGE=3;
+	public static final int CENTROID_LINKAGE=4;
+	public static final int MEDIAN_LINKAGE=5;
 	public static final int LLOYDS=0;
 	public static final int KMEANS_PLUS_PLUS=1;
-	public static final int LAST_COLUMN=-1;
+	public static final int ELKAN=2;
+	public static final int HAMERLY=3;
+	public static final int MINI_BATCH=4;
+	public static final int KMEANS_PARALLEL=5;
+	public static final int KD_TREE=6;
+	public static final int BISECTING=7;
+	public static final int LAST_COLUMN=CSVReader.LAST_COLUMN;
+	public static final int NO_CLASS_COLUMN=CSVReader.NO_LABEL_COLUMN;
 	public static final int FIRST_ROW=0;
 }
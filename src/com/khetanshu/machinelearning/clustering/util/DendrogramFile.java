@@ -0,0 +1,40 @@
+package com.khetanshu.machinelearning.clustering.util;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import com.khetanshu.machinelearning.clustering.vo.MergeHistory;
+
+/**
+ * Text export of a linkage merge history (the dendrogram) for the other tools, e.g. to be plotted; the binary
+ * {@link BinaryModelFile} is the one to read back.
+ *
+ * FILE LAYOUT (csv, one row per merge in the order of the merges):
+ * left,right,height,size
+ * where "left" and "right" are the merged nodes, numbered {0..n-1} for the points and n+i for the cluster formed by the
+ * merge "i", "height" is the square distance between them as per the linkage type and "size" is the # of points of the
+ * merged cluster, i.e. the linkage matrix of SciPy (scipy.cluster.hierarchy) as it is, but for the square heights
+ * (their square root is the SciPy height for single, complete, ward, centroid and median linkage).
+ *
+ * ASYMPTOTIC COMPLEXITY(Worst case):
+ * O(n)
+ *
+ * where,
+ * n : # of point
+ */
+public class DendrogramFile {
+	public static final String HEADER="left,right,height,size";
+
+	public static void writeCsv(MergeHistory history, String fileName) throws IOException {
+		try(BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))){
+			writer.write(HEADER);
+			writer.newLine();
+			for (int merge = 0; merge < history.getMerges(); merge++) {
+				writer.write(history.getLeft(merge)+","+history.getRight(merge)+","+history.getHeight(merge)+","
+						+history.getMergedSize(merge));
+				writer.newLine();
+			}
+		}
+	}
+}
@@ -40,6 +40,100 @@ public class Initializer {
 				case "PRINT_SILHOUETTE_SCORE":
 					ClusteringAlgorithms.PRINT_SILHOUETTE_SCORE=Boolean.valueOf(value);
 					break;
+				case "RANDOM_SEED":
+					ClusteringAlgorithms.RANDOM_SEED=value.isEmpty()?null:Long.valueOf(value);
+					break;
+				case "PARALLELISM":
+					ClusteringAlgorithms.PARALLELISM=Integer.valueOf(value);
+					break;
+				case "KMEANS_ENGINE":
+					ClusteringAlgorithms.KMEANS_ENGINE=getConstant(value);
+					break;
+				case "KMEANS_SEEDING":
+					ClusteringAlgorithms.KMEANS_SEEDING=getConstant(value);
+					break;
+				case "KMEANS_PARALLEL_ROUNDS":
+					ClusteringAlgorithms.KMEANS_PARALLEL_ROUNDS=Integer.valueOf(value);
+					break;
+				case "KMEANS_MAX_ITERATIONS":
+					ClusteringAlgorithms.KMEANS_MAX_ITERATIONS=Integer.valueOf(value);
+					break;
+				case "KMEANS_SHIFT_TOLERANCE":
+					ClusteringAlgorithms.KMEANS_SHIFT_TOLERANCE=Double.valueOf(value);
+					break;
+				case "KMEANS_INERTIA_TOLERANCE":
+					ClusteringAlgorithms.KMEANS_INERTIA_TOLERANCE=Double.valueOf(value);
+					break;
+				case "KMEANS_RESTARTS":
+					ClusteringAlgorithms.KMEANS_RESTARTS=Integer.valueOf(value);
+					break;
+				case "KMEANS_RESTART_CANCEL_RATIO":
+					ClusteringAlgorithms.KMEANS_RESTART_CANCEL_RATIO=Double.valueOf(value);
+					break;
+				case "MINI_BATCH_SIZE":
+					ClusteringAlgorithms.MINI_BATCH_SIZE=Integer.valueOf(value);
+					break;
+				case "MINI_BATCH_MAX_ITERATIONS":
+					ClusteringAlgorithms.MINI_BATCH_MAX_ITERATIONS=Integer.valueOf(value);
+					break;
+				case "MINI_BATCH_TOLERANCE":
+					ClusteringAlgorithms.MINI_BATCH_TOLERANCE=Double.valueOf(value);
+					break;
+				case "BISECTING_REFINE":
+					ClusteringAlgorithms.BISECTING_REFINE=Boolean.valueOf(value);
+					break;
+				case "KMEANS_CORESET_SIZE":
+					ClusteringAlgorithms.KMEANS_CORESET_SIZE=Integer.valueOf(value);
+					break;
+				case "KMEANS_CORESET_OUTPUT":
+					ClusteringAlgorithms.KMEANS_CORESET_OUTPUT=value.isEmpty()?null:value;
+					break;
+				case "LINKAGE_TYPES":
+					String[] linkageTypes = value.split(",");
+					ClusteringAlgorithms.LINKAGE_TYPES=new int[linkageTypes.length];
+					for (int i = 0; i < linkageTypes.length; i++) {
+						ClusteringAlgorithms.LINKAGE_TYPES[i]=getConstant(linkageTypes[i]);
+					}
+					break;
+				case "LINKAGE_FLOAT_MATRIX":
+					ClusteringAlgorithms.LINKAGE_FLOAT_MATRIX=Boolean.valueOf(value);
+					break;
+				case "LINKAGE_CUT_HEIGHT":
+					ClusteringAlgorithms.LINKAGE_CUT_HEIGHT=value.isEmpty()?null:Double.valueOf(value);
+					break;
+				case "LINKAGE_MERGES_FILE":
+					ClusteringAlgorithms.LINKAGE_MERGES_FILE=value.isEmpty()?null:value;
+					break;
+				case "USE_VECTOR_API":
+					ClusteringAlgorithms.USE_VECTOR_API=Boolean.valueOf(value);
+					break;
+				case "USE_BINARY_CACHE":
+					ClusteringAlgorithms.USE_BINARY_CACHE=Boolean.valueOf(value);
+					break;
+				case "ELBOW_MIN_CLUSTERS":
+					ClusteringAlgorithms.ELBOW_MIN_CLUSTERS=Integer.valueOf(value);
+					break;
+				case "ELBOW_MAX_CLUSTERS":
+					ClusteringAlgorithms.ELBOW_MAX_CLUSTERS=Integer.valueOf(value);
+					break;
+				case "ELBOW_WARM_START":
+					ClusteringAlgorithms.ELBOW_WARM_START=Boolean.valueOf(value);
+					break;
+				case "ELBOW_SILHOUETTE":
+					ClusteringAlgorithms.ELBOW_SILHOUETTE=Boolean.valueOf(value);
+					break;
+				case "INCREMENTAL_MODEL_FILE":
+					ClusteringAlgorithms.INCREMENTAL_MODEL_FILE=value.isEmpty()?null:value;
+					break;
+				case "INCREMENTAL_DRIFT_THRESHOLD":
+					ClusteringAlgorithms.INCREMENTAL_DRIFT_THRESHOLD=Double.valueOf(value);
+					break;
+				case "INCREMENTAL_MAX_ITERATIONS":
+					ClusteringAlgorithms.INCREMENTAL_MAX_ITERATIONS=Integer.valueOf(value);
+					break;
+				case "MODEL_OUTPUT_DIRECTORY":
+					ClusteringAlgorithms.MODEL_OUTPUT_DIRECTORY=value.isEmpty()?null:value;
+					break;
 				}
 			}
 		} catch (FileNotFoundException e) {
@@ -48,4 +142,13 @@ public class Initializer {
 			e.printStackTrace();
 		}
 	}
+
+	/**@return the value of the constant named in the config e.g. "ELKAN" -> CONSTANTS.ELKAN*/
+	private static int getConstant(String name) {
+		try {
+			return CONSTANTS.class.getField(name.trim()).getInt(null);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException("Unknown constant in the config: "+name, e);
+		}
+	}
 }
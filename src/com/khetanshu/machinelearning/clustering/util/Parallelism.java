@@ -0,0 +1,29 @@
+package com.khetanshu.machinelearning.clustering.util;
+
+import java.util.concurrent.ForkJoinPool;
+
+import com.khetanshu.machinelearning.clustering.main.ClusteringAlgorithms;
+
+/**
+ * Single fork-join pool shared by all the parallel stages (parsing, clustering, evaluation).
+ * Its size is taken from ClusteringAlgorithms.PARALLELISM {<=0 : all the available cores}
+ */
+public class Parallelism {
+	private static ForkJoinPool pool;
+
+	public static int getLevel() {
+		if(ClusteringAlgorithms.PARALLELISM>0)
+			return ClusteringAlgorithms.PARALLELISM;
+		return Runtime.getRuntime().availableProcessors();
+	}
+
+	public static synchronized ForkJoinPool getPool() {
+		if(pool==null || pool.getParallelism()!=getLevel()) {
+			if(pool!=null) {
+				pool.shutdown();
+			}
+			pool = new ForkJoinPool(getLevel());
+		}
+		return pool;
+	}
+}
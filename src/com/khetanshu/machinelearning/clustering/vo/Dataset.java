@@ -0,0 +1,163 @@
+package com.khetanshu.machinelearning.clustering.vo;
+
+import java.util.Arrays;
+
+import com.khetanshu.corelib.DistanceKernel;
+import com.khetanshu.corelib.DistanceKernels;
+
+/**
+ * Dense, row-major storage of the points to be clustered.
+ *
+ * All the attribute values are kept in ONE contiguous double[] where the point "i" occupies the slots
+ * [i*dimensions, (i+1)*dimensions) i.e. a fixed stride equal to the number of attributes.
+ * The predefined class of each point (if the input has one) is kept in a parallel int[] label column, and the weight
+ * of each point (e.g. of a coreset, where a point stands for many) in an optional double[] column; no weights means
+ * every point weighs 1.
+ *
+ * This replaces the older Map<Integer,Point> + Map<Integer,Double> representation where each and every value
+ * was a boxed Double stored in a Hash-Map, which made the heap footprint and the cache misses
+ * (rather than the arithmetic) the bottleneck of every distance calculation.
+ *
+ * DATA STRUCTURE USED:
+ * 1. Array (row-major matrix)
+ *
+ * where,
+ * n : # of point ,  d : number of attributes
+ */
+public class Dataset {
+	public static final int NO_LABEL=-1;
+
+	private final int size;
+	private final int dimensions;
+	private final double[] values;	/**<row-major n*d matrix*/
+	private final int[] labels;		/**<predefined class of each point or NO_LABEL*/
+	private final double[] weights;	/**<weight of each point, null if all weigh 1*/
+	private final double totalWeight;
+	private final DistanceKernel kernel;
+
+	public Dataset(int size, int dimensions) {
+		this(size, dimensions, new double[size*dimensions], new int[size]);
+		Arrays.fill(labels, NO_LABEL);
+	}
+
+	/** @param( values = row-major n*d matrix, labels = predefined class of each point)
+	 *  The arrays are NOT copied, i.e. the dataset would be a view over them*/
+	public Dataset(int size, int dimensions, double[] values, int[] labels) {
+		this(size, dimensions, values, labels, null);
+	}
+
+	/** @param weights = weight of each point (null if all weigh 1), not copied either*/
+	public Dataset(int size, int dimensions, double[] values, int[] labels, double[] weights) {
+		if(values.length<size*dimensions || labels.length<size || (weights!=null && weights.length<size)) {
+			throw new IllegalArgumentException("Dataset storage is smaller than "+size+"x"+dimensions);
+		}
+		this.size=size;
+		this.dimensions=dimensions;
+		this.values=values;
+		this.labels=labels;
+		this.weights=weights;
+		double total=size;
+		if(weights!=null) {
+			total=0;
+			for (int i = 0; i < size; i++) {
+				total+=weights[i];
+			}
+		}
+		this.totalWeight=total;
+		this.kernel=DistanceKernels.getInstance();
+	}
+
+	/**@return the index in the "values" array where the point's first attribute is stored*/
+	public int offset(int pointId) {
+		return pointId*dimensions;
+	}
+
+	public double getValue(int pointId, int dimensionId) {
+		return values[pointId*dimensions+dimensionId];
+	}
+
+	public void setValue(int pointId, int dimensionId, double value) {
+		values[pointId*dimensions+dimensionId]=value;
+	}
+
+	/** copy the attributes of the point into the "target" array starting at "targetOffset"*/
+	public void copyPoint(int pointId, double[] target, int targetOffset) {
+		System.arraycopy(values, pointId*dimensions, target, targetOffset, dimensions);
+	}
+
+	public double squareDistance(int pointId_A, int pointId_B) {
+		return squareDistance(pointId_A, values, pointId_B*dimensions);
+	}
+
+	/** @return the square distance between the point and the vector stored in "other" at "otherOffset"
+	 *  e.g. a centroid stored in a flattened k*d array*/
+	public double squareDistance(int pointId, double[] other, int otherOffset) {
+		return kernel.squareDistance(values, pointId*dimensions, other, otherOffset, dimensions);
+	}
+
+	/** Square distances of the point from the first "totalOthers" vectors of the flattened "others" (e.g. all the
+	 * centroids) into out[0, totalOthers), by one (one to many) kernel call*/
+	public void squareDistances(int pointId, double[] others, int totalOthers, double[] out) {
+		kernel.squareDistances(values, pointId*dimensions, others, 0, totalOthers, dimensions, out, 0);
+	}
+
+	/**@return the distance kernel chosen at runtime (scalar or SIMD) used by this dataset*/
+	public DistanceKernel getKernel() {
+		return kernel;
+	}
+
+	public boolean hasLabels() {
+		for (int i = 0; i < size; i++) {
+			if(labels[i]!=NO_LABEL)
+				return true;
+		}
+		return false;
+	}
+
+	public int getLabel(int pointId) {
+		return labels[pointId];
+	}
+
+	public void setLabel(int pointId, int label) {
+		labels[pointId]=label;
+	}
+
+	public boolean isWeighted() {
+		return weights!=null;
+	}
+
+	public double getWeight(int pointId) {
+		return weights==null?1:weights[pointId];
+	}
+
+	/**@return the weights column, null if all the points weigh 1*/
+	public double[] getWeights() {
+		return weights;
+	}
+
+	/**@return Σ of the weights (n if all the points weigh 1)*/
+	public double getTotalWeight() {
+		return totalWeight;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public int getDimensions() {
+		return dimensions;
+	}
+
+	public double[] getValues() {
+		return values;
+	}
+
+	public int[] getLabels() {
+		return labels;
+	}
+
+	@Override
+	public String toString() {
+		return "Dataset [size=" + size + ", dimensions=" + dimensions + "]";
+	}
+}
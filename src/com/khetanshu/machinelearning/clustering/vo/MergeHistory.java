@@ -0,0 +1,171 @@
+package com.khetanshu.machinelearning.clustering.vo;
+
+import java.util.Arrays;
+
+import com.khetanshu.corelib.DisjointSets;
+
+/**
+ * Merges done by a linkage run in their order i.e. the dendrogram, so that the clusters at any # of clusters or at any
+ * height can be found again, in O(n), without re-running the linkage.
+ *
+ * The nodes are numbered as {0..n-1} for the points and n+i for the cluster formed by the merge "i", so the merge "i"
+ * joins the nodes left[i] and right[i] (each < n+i) at the (square distance) height heights[i] into a cluster of
+ * sizes[i] points.
+ *
+ * DATA STRUCTURE USED:
+ * 1. Array (one column per attribute of a merge)
+ * 2. Disjoint Sets (to number the merges found out of order)
+ *
+ * ASYMPTOTIC COMPLEXITY(Worst case):
+ * Cut (by k or by height) : O(n), Sort by height : O(n.lg(n))
+ *
+ * where,
+ * n : # of point
+ */
+public class MergeHistory {
+	private final int size;
+	private final int linkageType;
+	private final int[] left;
+	private final int[] right;
+	private final double[] heights;
+	private final int[] sizes;
+	private int merges;
+
+	/** An empty history of n points, to be filled by {@link #addMerge}*/
+	public MergeHistory(int size, int linkageType) {
+		this(size, linkageType, new int[Math.max(0, size-1)], new int[Math.max(0, size-1)], new double[Math.max(0, size-1)],
+				new int[Math.max(0, size-1)], 0);
+	}
+
+	public MergeHistory(int size, int linkageType, int[] left, int[] right, double[] heights, int[] sizes, int merges) {
+		this.size=size;
+		this.linkageType=linkageType;
+		this.left=left;
+		this.right=right;
+		this.heights=heights;
+		this.sizes=sizes;
+		this.merges=merges;
+	}
+
+	/**
+	 * Sorts merges found in any order (e.g. by a nearest neighbour chain or along a spanning tree) by height, stably,
+	 * and numbers them i.e. the clusters of a merge are found, through disjoint sets, by any of their points
+	 * @param( 	pointsA, pointsB	= a point of each of the two clusters of a merge,
+	 * 			heights				= height of each merge)
+	 */
+	public static MergeHistory sortByHeight(int size, int linkageType, int[] pointsA, int[] pointsB, double[] heights) {
+		Integer[] order = new Integer[heights.length];
+		for (int merge = 0; merge < order.length; merge++) {
+			order[merge]=merge;
+		}
+		Arrays.sort(order, (merge1, merge2) -> Double.compare(heights[merge1], heights[merge2]));
+
+		MergeHistory mergeHistory = new MergeHistory(size, linkageType);
+		DisjointSets disjointSets = new DisjointSets(size);
+		int[] clusterNodes = new int[size];
+		for (int point = 0; point < size; point++) {
+			clusterNodes[point]=point;
+		}
+		for (int merge : order) {
+			int rootA = disjointSets.find(pointsA[merge]);
+			int rootB = disjointSets.find(pointsB[merge]);
+			int root = disjointSets.union(rootA, rootB);
+			clusterNodes[root]=mergeHistory.addMerge(clusterNodes[rootA], clusterNodes[rootB], heights[merge],
+					disjointSets.getSetSize(root));
+		}
+		return mergeHistory;
+	}
+
+	/** @return the node id {n+i} of the new cluster*/
+	public int addMerge(int leftNode, int rightNode, double height, int mergedSize) {
+		left[merges]=leftNode;
+		right[merges]=rightNode;
+		heights[merges]=height;
+		sizes[merges]=mergedSize;
+		return size+merges++;
+	}
+
+	/**
+	 * Clusters after the first n-k merges; the clusters are numbered from the last merge backwards (then the points
+	 * never merged) hence the same k gives the same numbering
+	 * @return the cluster {1..k} of each point
+	 */
+	public int[] cut(int requiredClusters) {
+		int keptMerges = size-requiredClusters;
+		if(requiredClusters<1 || keptMerges>merges) {
+			throw new IllegalArgumentException("Can't cut "+size+" points with "+merges+" merges into "+requiredClusters+" clusters");
+		}
+		boolean[] kept = new boolean[merges];
+		Arrays.fill(kept, 0, Math.max(0, keptMerges), true);
+		return label(kept);
+	}
+
+	/**
+	 * Clusters whose merges are all at most "threshold" high (in the units of the heights i.e. square distances), i.e.
+	 * the dendrogram cut at that height. A merge is kept only if the ones below it are, so that a merge lower than an
+	 * earlier one (an inversion of centroid or median linkage) doesn't split its subtree; without inversions this is
+	 * cut(k) for k = n - (# of merges up to the threshold), with the same numbering
+	 * @return the cluster {1..k} of each point
+	 */
+	public int[] cutAtHeight(double threshold) {
+		boolean[] kept = new boolean[merges];
+		for (int merge = 0; merge < merges; merge++) {
+			kept[merge]=heights[merge]<=threshold && (left[merge]<size || kept[left[merge]-size])
+					&& (right[merge]<size || kept[right[merge]-size]);
+		}
+		return label(kept);
+	}
+
+	/** Numbers the clusters formed by the kept merges (a kept merge's subtree is all kept) from the last one backwards,
+	 * then the points never merged*/
+	private int[] label(boolean[] kept) {
+		int[] nodeClusters = new int[size+merges];
+		int clusters=0;
+		/**A node's parent is formed by a later merge, hence walking the merges backwards labels each node after its parent*/
+		for (int merge = merges-1; merge >= 0; merge--) {
+			if(!kept[merge])
+				continue;
+			int node = size+merge;
+			if(nodeClusters[node]==0) {
+				nodeClusters[node]=++clusters;
+			}
+			nodeClusters[left[merge]]=nodeClusters[node];
+			nodeClusters[right[merge]]=nodeClusters[node];
+		}
+		for (int point = 0; point < size; point++) {
+			if(nodeClusters[point]==0) {
+				nodeClusters[point]=++clusters;
+			}
+		}
+		return Arrays.copyOf(nodeClusters, size);
+	}
+
+	/**@return # of points*/
+	public int getSize() {
+		return size;
+	}
+
+	public int getLinkageType() {
+		return linkageType;
+	}
+
+	public int getMerges() {
+		return merges;
+	}
+
+	public int getLeft(int merge) {
+		return left[merge];
+	}
+
+	public int getRight(int merge) {
+		return right[merge];
+	}
+
+	public double getHeight(int merge) {
+		return heights[merge];
+	}
+
+	public int getMergedSize(int merge) {
+		return sizes[merge];
+	}
+}
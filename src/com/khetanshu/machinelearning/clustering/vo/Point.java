@@ -1,29 +1,25 @@
 package com.khetanshu.machinelearning.clustering.vo;
 
-import java.util.Map;
-import java.util.function.BinaryOperator;
-
+/**
+ * Result of a clustering for one point. 
+ * The attributes of the point are no more kept here, they live in the row-major {@link Dataset} 
+ * and the point is identified by its row (i.e. the key of the points map)
+ */
 public class Point {
 	private int assignedCluster;
 	private double squareDistanceFromCentroid;
-	private Map<Integer,Double> dimensions;
-	
 	
 	public Point() {
 	}
 	
-	public Point(Map<Integer,Double> dimensions,int assignedCluster) {
-		setDimensions(dimensions);
+	public Point(int assignedCluster) {
 		setAssignedCluster(assignedCluster);
 		setSquareDistanceFromCentroid(Double.MAX_VALUE);
 	}
 	
-	public static Double calculateSquareDistance(Map<Integer,Double> dimensions_A,Map<Integer,Double> dimensions_B) {
-		Double squareDistance =0.0;
-		for (Integer dimensionID : dimensions_A.keySet()) {
-			squareDistance+=Math.pow(dimensions_B.get(dimensionID)-dimensions_A.get(dimensionID),2);
-		}
-		return squareDistance;
+	public Point(int assignedCluster, double squareDistanceFromCentroid) {
+		setAssignedCluster(assignedCluster);
+		setSquareDistanceFromCentroid(squareDistanceFromCentroid);
 	}
 	
 	public static void main(String[] args) {
@@ -61,12 +57,6 @@ public class Point {
 	public void setAssignedCluster(int assignedCluster) {
 		this.assignedCluster = assignedCluster;
 	}
-	public Map<Integer, Double> getDimensions() {
-		return dimensions;
-	}
-	public void setDimensions(Map<Integer, Double> dimensions) {
-		this.dimensions = dimensions;
-	}
 
 	public double getSquareDistanceFromCentroid() {
 		return squareDistanceFromCentroid;